@@ -0,0 +1,111 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.StrictMode;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies FavoritesRepository never performs disk I/O on the UI thread. StrictMode kills the
+ * process on any disk read or write from the UI thread while the test runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FavoritesRepositoryTest {
+
+    private static final String DATABASE_NAME = "favorites-strict-mode-test";
+
+    private Context context;
+    private RecipeDatabase database;
+    private FavoritesRepository favoritesRepository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+
+        // A file-backed database, so queries really touch the disk
+        database = Room.databaseBuilder(context, RecipeDatabase.class, DATABASE_NAME).build();
+        favoritesRepository = new FavoritesRepository(database, TaskEngine.getInstance());
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void favoritesQueries_performNoDiskIoOnMainThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean toggledOn = new AtomicBoolean();
+        AtomicBoolean deliveredOnMainThread = new AtomicBoolean(true);
+        AtomicReference<ArrayList<Recipe>> favorites = new AtomicReference<>();
+        AtomicReference<Instructions> stored = new AtomicReference<>();
+        AtomicReference<StrictMode.ThreadPolicy> previousPolicy = new AtomicReference<>();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            previousPolicy.set(StrictMode.getThreadPolicy());
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+
+            Instructions instructions = new Instructions(52772, "Teriyaki Chicken Casserole", "Chicken",
+                    "Japanese", null, "Preheat oven to 350F.",
+                    Arrays.asList(new Ingredient("soy sauce", "3/4 cup"), new Ingredient("water", "1/2 cup")));
+            favoritesRepository.toggle(instructions, isFavorite -> {
+                toggledOn.set(isFavorite);
+                deliveredOnMainThread.compareAndSet(true, Looper.myLooper() == Looper.getMainLooper());
+
+                favoritesRepository.isFavorite(52772, stillFavorite -> {
+                    deliveredOnMainThread.compareAndSet(true, Looper.myLooper() == Looper.getMainLooper());
+
+                    favoritesRepository.getAll(recipes -> {
+                        deliveredOnMainThread.compareAndSet(true, Looper.myLooper() == Looper.getMainLooper());
+                        favorites.set(recipes);
+
+                        // Favorites open from the stored Instructions
+                        favoritesRepository.getInstructions(52772, favorite -> {
+                            deliveredOnMainThread.compareAndSet(true, Looper.myLooper() == Looper.getMainLooper());
+                            stored.set(favorite);
+                            latch.countDown();
+                        });
+                    });
+                });
+            });
+        });
+
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> StrictMode.setThreadPolicy(previousPolicy.get()));
+        }
+
+        assertTrue(toggledOn.get());
+        assertTrue(deliveredOnMainThread.get());
+        assertEquals(1, favorites.get().size());
+        assertEquals(52772, favorites.get().get(0).getId());
+        assertEquals("Japanese", stored.get().getArea());
+        assertEquals(2, stored.get().getIngredients().size());
+        assertEquals("3/4 cup", stored.get().getIngredients().get(0).getMeasure());
+    }
+}
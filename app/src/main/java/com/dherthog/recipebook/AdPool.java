@@ -0,0 +1,155 @@
+package com.dherthog.recipebook;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of preloaded full screen ads. Keeps up to a fixed number of ads loaded or loading, drops
+ * ads before AdMob considers them stale, and backs off exponentially after a load fails. Taking an
+ * ad never waits: the pool either has one ready or returns null, and refills itself right away.
+ * Must only be used on the UI thread.
+ * @param <T> The type of ad, e.g. InterstitialAd
+ */
+class AdPool<T> {
+
+    // AdMob ads expire an hour after loading, keep a margin for the time it takes to show them
+    static final long AD_EXPIRY_MS = TimeUnit.MINUTES.toMillis(55);
+
+    // The delay before retrying after a failed load, doubled after each consecutive failure
+    private static final long INITIAL_BACKOFF_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Loads a single ad.
+     * @param <T> The type of ad
+     */
+    interface Loader<T> {
+
+        /**
+         * Starts loading an ad.
+         * @param callback Notified on the UI thread once the ad has loaded or failed to load
+         */
+        void load(LoadCallback<T> callback);
+    }
+
+    /**
+     * Receives the outcome of a Loader.
+     * @param <T> The type of ad
+     */
+    interface LoadCallback<T> {
+
+        /**
+         * @param ad The loaded ad
+         */
+        void onLoaded(T ad);
+
+        /**
+         * Called if the ad could not be loaded.
+         */
+        void onFailed();
+    }
+
+    /**
+     * A loaded ad and when it was loaded.
+     * @param <T> The type of ad
+     */
+    private static class Entry<T> {
+        final T ad;
+        final long loadedAt; // On the elapsedRealtime clock
+
+        Entry(T ad, long loadedAt) {
+            this.ad = ad;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final int capacity; // The number of ads kept loaded or loading
+    private final Loader<T> loader;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Entry<T>> ready = new ArrayDeque<>(); // Oldest first
+    private int loading; // The number of loads in progress
+    private long backoffMs; // The current delay before retrying, 0 after a successful load
+    private boolean backingOff, closed;
+
+    private final Runnable retry = () -> {
+        backingOff = false;
+        fill();
+    };
+
+    /**
+     * @param capacity The number of ads to keep loaded or loading
+     * @param loader Loads a single ad
+     */
+    AdPool(int capacity, Loader<T> loader) {
+        this.capacity = capacity;
+        this.loader = loader;
+    }
+
+    /**
+     * Starts loading ads until the pool is full, unless it is backing off after a failure.
+     */
+    void fill() {
+        if (closed || backingOff)
+            return;
+
+        dropExpired();
+        while (ready.size() + loading < capacity) {
+            loading++;
+            loader.load(new LoadCallback<T>() {
+                @Override
+                public void onLoaded(T ad) {
+                    loading--;
+                    if (closed)
+                        return;
+
+                    backoffMs = 0;
+                    ready.addLast(new Entry<>(ad, SystemClock.elapsedRealtime()));
+                }
+
+                @Override
+                public void onFailed() {
+                    loading--;
+                    if (closed || backingOff)
+                        return;
+
+                    backoffMs = backoffMs == 0 ? INITIAL_BACKOFF_MS : Math.min(2 * backoffMs, MAX_BACKOFF_MS);
+                    backingOff = true;
+                    handler.postDelayed(retry, backoffMs);
+                }
+            });
+        }
+    }
+
+    /**
+     * Takes the oldest ad that has not expired and starts loading its replacement.
+     * @return A ready ad, or null if none is ready
+     */
+    T take() {
+        dropExpired();
+        Entry<T> entry = ready.pollFirst();
+        fill();
+        return entry == null ? null : entry.ad;
+    }
+
+    /**
+     * Drops every ad and stops loading new ones.
+     */
+    void close() {
+        closed = true;
+        handler.removeCallbacks(retry);
+        ready.clear();
+    }
+
+    /**
+     * Drops the ads that are too old to be shown.
+     */
+    private void dropExpired() {
+        long now = SystemClock.elapsedRealtime();
+        while (!ready.isEmpty() && now - ready.peekFirst().loadedAt > AD_EXPIRY_MS)
+            ready.pollFirst();
+    }
+}
@@ -0,0 +1,151 @@
+package com.dherthog.recipebook;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A Dao for the data cached from TMDB and its full-text search index.
+ */
+@Dao
+abstract class CacheDao {
+
+    // Stays well below SQLite's limit of 999 bound parameters
+    private static final int MAX_BOUND_IDS = 500;
+
+    /**
+     * Returns the cached categories in the order TMDB returned them.
+     */
+    @Query("SELECT * FROM cached_category ORDER BY position")
+    abstract List<CachedCategory> getCategories();
+
+    /**
+     * Returns the cached Recipes of the given category in the order TMDB returned them.
+     */
+    @Query("SELECT * FROM cached_recipe WHERE category = :category ORDER BY position")
+    abstract List<CachedRecipe> getRecipes(String category);
+
+    /**
+     * Returns the cached Instructions with the given ID, or null if they are not cached.
+     */
+    @Query("SELECT * FROM cached_instructions WHERE id = :id")
+    abstract CachedInstructions getInstructions(int id);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertCategories(List<CachedCategory> categories);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertRecipes(List<CachedRecipe> recipes);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertInstructions(CachedInstructions instructions);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertSearchEntry(MealSearchEntry entry);
+
+    /**
+     * Returns the ids of the given Recipes that are already in the search index.
+     */
+    @Query("SELECT rowid FROM meal_search WHERE rowid IN (:ids)")
+    abstract List<Integer> getIndexedIds(List<Integer> ids);
+
+    /**
+     * Returns the meals matching an FTS4 query, e.g. "chick* curr*", with their matchinfo.
+     */
+    @Query("SELECT rowid AS id, name, imageUrl, matchinfo(meal_search, 'pcx') AS matchInfo "
+            + "FROM meal_search WHERE meal_search MATCH :query")
+    abstract List<SearchMatch> search(String query);
+
+    /**
+     * Marks the cached categories as fresh without rewriting them.
+     */
+    @Query("UPDATE cached_category SET fetchedAt = :fetchedAt")
+    abstract void touchCategories(long fetchedAt);
+
+    /**
+     * Marks the cached Recipes of the given category as fresh without rewriting them.
+     */
+    @Query("UPDATE cached_recipe SET fetchedAt = :fetchedAt WHERE category = :category")
+    abstract void touchRecipes(String category, long fetchedAt);
+
+    /**
+     * Marks the cached Instructions with the given ID as fresh without rewriting them.
+     */
+    @Query("UPDATE cached_instructions SET fetchedAt = :fetchedAt WHERE id = :id")
+    abstract void touchInstructions(int id, long fetchedAt);
+
+    @Query("DELETE FROM cached_category")
+    abstract void deleteCategories();
+
+    @Query("DELETE FROM cached_recipe WHERE category = :category")
+    abstract void deleteRecipes(String category);
+
+    /**
+     * Replaces all cached categories with the given categories.
+     * @param categories The newly downloaded categories
+     */
+    @Transaction
+    void replaceCategories(List<CachedCategory> categories) {
+        deleteCategories();
+        insertCategories(categories);
+    }
+
+    /**
+     * Replaces the cached Recipes of a category with the given Recipes.
+     * @param category The category the Recipes are listed under
+     * @param recipes The newly downloaded Recipes
+     */
+    @Transaction
+    void replaceRecipes(String category, List<CachedRecipe> recipes) {
+        deleteRecipes(category);
+        insertRecipes(recipes);
+        indexRecipes(recipes);
+    }
+
+    /**
+     * Caches downloaded Instructions and indexes their text for search.
+     * @param instructions The downloaded Instructions
+     */
+    @Transaction
+    void cacheInstructions(CachedInstructions instructions) {
+        insertInstructions(instructions);
+        insertSearchEntry(MealSearchEntry.from(instructions.toInstructions()));
+    }
+
+    /**
+     * Caches several downloaded Instructions and indexes their text for search in one transaction.
+     * @param instructions The downloaded Instructions
+     */
+    @Transaction
+    void cacheInstructions(List<CachedInstructions> instructions) {
+        for (CachedInstructions cached : instructions)
+            cacheInstructions(cached);
+    }
+
+    /**
+     * Adds listed Recipes to the search index unless their full Instructions are indexed already.
+     * @param recipes The listed Recipes
+     */
+    private void indexRecipes(List<CachedRecipe> recipes) {
+        List<Integer> ids = new ArrayList<>();
+        for (CachedRecipe recipe : recipes)
+            ids.add(recipe.getId());
+
+        // SQLite limits the number of bound parameters, so look the ids up in chunks
+        Set<Integer> indexed = new HashSet<>();
+        for (int i = 0; i < ids.size(); i += MAX_BOUND_IDS)
+            indexed.addAll(getIndexedIds(ids.subList(i, Math.min(i + MAX_BOUND_IDS, ids.size()))));
+
+        for (CachedRecipe recipe : recipes) {
+            if (!indexed.contains(recipe.getId()))
+                insertSearchEntry(MealSearchEntry.from(recipe));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dherthog.recipebook;
+
+/**
+ * How RecipeRepository balances cached data against the network for a single load. Picked per load
+ * from the ConnectivityMonitor's state and the age of the cached data.
+ */
+enum CachePolicy {
+    CACHE_ONLY, // Offline: cached data of any age, the network is not touched
+    CACHE_FIRST, // Cached data right away, refreshed in the background once stale on unmetered networks
+    NETWORK_FIRST // Nothing usable is cached: download, falling back to expired data if that fails
+}
@@ -0,0 +1,62 @@
+package com.dherthog.recipebook;
+
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A category downloaded from TMDB, stored so the categories can be displayed without a network call.
+ */
+@Entity(tableName = "cached_category")
+public class CachedCategory {
+
+    @PrimaryKey
+    @NonNull
+    private final String title; // The title of the category in TMDB
+    @ColumnInfo
+    private final String imageUrl; // The url for the image of the category in TMDB
+    @ColumnInfo
+    private final int position; // The position of the category in TMDB's response
+    @ColumnInfo
+    private final long fetchedAt; // When the category was downloaded, in milliseconds since epoch
+
+    /**
+     * @param title The title of the category in TMDB
+     * @param imageUrl The url for the image of the category in TMDB
+     * @param position The position of the category in TMDB's response
+     * @param fetchedAt When the category was downloaded, in milliseconds since epoch
+     */
+    public CachedCategory(@NonNull String title, String imageUrl, int position, long fetchedAt) {
+        this.title = title;
+        this.imageUrl = imageUrl;
+        this.position = position;
+        this.fetchedAt = fetchedAt;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * @return The category as a title-image URL pair
+     */
+    Pair<String, String> toPair() {
+        return new Pair<>(title, imageUrl);
+    }
+}
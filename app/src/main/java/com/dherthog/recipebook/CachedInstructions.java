@@ -0,0 +1,94 @@
+package com.dherthog.recipebook;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.util.List;
+
+/**
+ * Instructions downloaded from TMDB, stored so a Recipe can be displayed without a network call.
+ */
+@Entity(tableName = "cached_instructions")
+public class CachedInstructions {
+
+    @PrimaryKey
+    private final int id; // The id of the Recipe in TMDB
+    @ColumnInfo
+    private final String name, category, area, imageUrl, instructions;
+    @ColumnInfo
+    private final List<Ingredient> ingredients; // Null for Instructions cached before ingredients were stored
+    @ColumnInfo
+    private final long fetchedAt; // When the Instructions were downloaded, in milliseconds since epoch
+
+    /**
+     * @param id The ID of the Recipe in the TMDB
+     * @param name The name of the Recipe in the TMDB
+     * @param category The category of the Recipe in the TMDB
+     * @param area The area of the Recipe in the TMDB
+     * @param imageUrl The imageUrl of the Recipe in the TMDB
+     * @param instructions The instructions of the Recipe in the TMDB
+     * @param ingredients The ingredients of the Recipe in the TMDB. This value may be null.
+     * @param fetchedAt When the Instructions were downloaded, in milliseconds since epoch
+     */
+    public CachedInstructions(int id, String name, String category, String area, String imageUrl, String instructions, List<Ingredient> ingredients, long fetchedAt) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.area = area;
+        this.imageUrl = imageUrl;
+        this.instructions = instructions;
+        this.ingredients = ingredients;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * @param instructions The downloaded Instructions
+     * @param fetchedAt When the Instructions were downloaded, in milliseconds since epoch
+     * @return A CachedInstructions storing the given Instructions
+     */
+    static CachedInstructions from(Instructions instructions, long fetchedAt) {
+        return new CachedInstructions(instructions.getId(), instructions.getName(),
+                instructions.getCategory(), instructions.getArea(), instructions.getImageUrl(),
+                instructions.getInstructions(), instructions.getIngredients(), fetchedAt);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getArea() {
+        return area;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public List<Ingredient> getIngredients() {
+        return ingredients;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * @return The stored Instructions
+     */
+    Instructions toInstructions() {
+        return new Instructions(id, name, category, area, imageUrl, instructions, ingredients);
+    }
+}
@@ -0,0 +1,74 @@
+package com.dherthog.recipebook;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * A Recipe listed under a category in TMDB, stored so the category can be displayed without a
+ * network call.
+ */
+@Entity(tableName = "cached_recipe", primaryKeys = {"category", "id"})
+public class CachedRecipe {
+
+    @NonNull
+    private final String category; // The category the Recipe was listed under
+    private final int id; // The id of the Recipe in TMDB
+    @ColumnInfo
+    private final String name;
+    @ColumnInfo
+    private final String imageUrl; // The url for the image of the Recipe in TMDB
+    @ColumnInfo
+    private final int position; // The position of the Recipe in TMDB's response
+    @ColumnInfo
+    private final long fetchedAt; // When the listing was downloaded, in milliseconds since epoch
+
+    /**
+     * @param category The category the Recipe was listed under
+     * @param id The ID of the Recipe in the TMDB
+     * @param name The name of the Recipe in the TMDB
+     * @param imageUrl The imageUrl of the Recipe in the TMDB
+     * @param position The position of the Recipe in TMDB's response
+     * @param fetchedAt When the listing was downloaded, in milliseconds since epoch
+     */
+    public CachedRecipe(@NonNull String category, int id, String name, String imageUrl, int position, long fetchedAt) {
+        this.category = category;
+        this.id = id;
+        this.name = name;
+        this.imageUrl = imageUrl;
+        this.position = position;
+        this.fetchedAt = fetchedAt;
+    }
+
+    @NonNull
+    public String getCategory() {
+        return category;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * @return The listed Recipe
+     */
+    Recipe toRecipe() {
+        return new Recipe(id, name, imageUrl);
+    }
+}
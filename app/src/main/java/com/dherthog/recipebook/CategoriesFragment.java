@@ -2,49 +2,47 @@ package com.dherthog.recipebook;
 
 import android.content.Context;
 import android.os.Bundle;
-import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
-import android.widget.ImageView;
-import android.widget.ListView;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.AdView;
-import com.squareup.picasso.Picasso;
-
-import java.util.ArrayList;
 
 /**
- * A Fragment to display meal Categories.
+ * A Fragment to display meal Categories. The categories are read from the RecipeBookViewModel, so
+ * the Fragment can be recreated by the framework.
  */
 public class CategoriesFragment extends Fragment {
 
-    private final CategorySelectedCommunicator categorySelectedCommunicator;
-    private final ArrayList<Pair<String, String>> categories;
+    // The number of rows whose images are decoded ahead of scrolling
+    private static final int IMAGE_PREFETCH_ROWS = 4;
+
+    private CategorySelectedCommunicator categorySelectedCommunicator;
+    private RecyclerView.RecycledViewPool listItemViewPool; // Shared by all lists of list_item
     private View view; // The root View of the Fragment
+    private ImagePrefetcher imagePrefetcher;
 
     /**
-     * Constructor for passing an ActivityCommunicator, the application context, and categories to
-     * display.
-     * @param categorySelectedCommunicator The observer of ListView clicks.
-     * @param categories An ArrayList of category-image URL pairs
+     * Gets the observer of list clicks and the shared pool of list_item Views from the Activity.
+     * @param context The Activity the Fragment is attached to
      */
-    public CategoriesFragment(CategorySelectedCommunicator categorySelectedCommunicator, ArrayList<Pair<String, String>> categories) {
-        this.categorySelectedCommunicator = categorySelectedCommunicator;
-        this.categories = categories;
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        categorySelectedCommunicator = (CategorySelectedCommunicator) context;
+        listItemViewPool = ((ViewPoolProvider) context).getListItemViewPool();
     }
 
     /**
-     * Called to have the fragment instantiate its root View and display a banner ad and ListView
-     * for categories.
+     * Called to have the fragment instantiate its root View and display a banner ad and list of
+     * categories.
      * @param inflater The LayoutInflater object that can be used to inflate any views in the
      *                 fragment
      * @param parent If non-null, this is the parent view that the fragment's UI should be attached
@@ -58,16 +56,31 @@ public class CategoriesFragment extends Fragment {
         // Defines the xml file for the fragment
         view = inflater.inflate(R.layout.fragment_categories, parent, false);
 
-        displayBannerAd();
         displayListView();
 
+        // The banner must not delay the categories from being drawn
+        NextDraw.run(view, this::displayBannerAd);
+
         return view;
     }
 
+    /**
+     * Cancels the image prefetches of the destroyed list.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        imagePrefetcher.cancelAll();
+    }
+
     /**
      * Loads an ad into the Fragment's adView.
      */
     private void displayBannerAd() {
+        // The View was destroyed before it was drawn
+        if (getView() == null)
+            return;
+
         AdView adView = view.findViewById(R.id.av_categories);
         AdRequest adRequest = new AdRequest.Builder()
                 .build();
@@ -75,68 +88,24 @@ public class CategoriesFragment extends Fragment {
     }
 
     /**
-     * Instantiates the Fragment's ListView to display category data and sets an
-     * OnItemClickedListener for the items in the list.
+     * Instantiates the Fragment's RecyclerView to display category data. Selection of a category
+     * is reported by the CategoryListAdapter.
      */
     private void displayListView() {
-        ListAdapter adapter = new ListAdapter();
-        ListView listView = (ListView) view.findViewById(R.id.lv_categories);
-        listView.setAdapter(adapter);
-
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                categorySelectedCommunicator.categorySelected(categories.get(position).first);
-            }
-        });
-    }
-
-    /**
-     * An ArrayAdapter class to instantiate each Recipe's View.
-     */
-    private class ListAdapter extends ArrayAdapter<Pair<String, String>> {
-
-        /**
-         * Create a new ListViewAdapter.
-         */
-        public ListAdapter() {
-            super(view.getContext(), R.layout.list_item);
-        }
-
-        /**
-         * Instantiates a View for a single item in the list of categories.
-         * @param position The position the the item in the list.
-         * @param convertView This value may be null
-         * @param parent The parent of the newly instantiated View
-         * @return The newly instantiated View
-         */
-        @NonNull
-        @Override
-        public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-            Pair<String, String> category = categories.get(position);
-
-            // Inflates the View if it hasn't been already
-            if (convertView == null)
-                convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
-
-            // Get references for Views
-            TextView tvCategoryTitle = convertView.findViewById(R.id.tv_item_title);
-            ImageView ivCategoryImage = convertView.findViewById(R.id.iv_item);
-
-            // Set the title of the category
-            tvCategoryTitle.setText(category.first);
-            // Set the image of the category
-            Picasso.with(getContext()).load(category.second).resize(256, 160).into(ivCategoryImage);
-
-            return convertView;
-        }
-
-        /**
-         * @return The number of elements in the list.
-         */
-        @Override
-        public int getCount() {
-            return categories.size();
-        }
+        CategoryListAdapter adapter = new CategoryListAdapter(categorySelectedCommunicator);
+        RecyclerView recyclerView = view.findViewById(R.id.rv_categories);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(view.getContext());
+        // Return the ViewHolders to the shared pool when the Fragment's View is destroyed
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(listItemViewPool);
+        recyclerView.setAdapter(adapter);
+
+        RecipeBookViewModel viewModel = new ViewModelProvider(requireActivity()).get(RecipeBookViewModel.class);
+        viewModel.getCategories().observe(getViewLifecycleOwner(), adapter::submitList);
+
+        // Decode the images of upcoming rows while scrolling
+        imagePrefetcher = new ImagePrefetcher(ImageLoader.getInstance(view.getContext()), adapter, false, IMAGE_PREFETCH_ROWS);
+        recyclerView.addOnScrollListener(imagePrefetcher);
     }
 }
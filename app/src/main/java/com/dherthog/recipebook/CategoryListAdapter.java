@@ -0,0 +1,86 @@
+package com.dherthog.recipebook;
+
+import android.util.Pair;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A RecyclerView adapter displaying category title-image URL pairs. Categories are identified by
+ * their title.
+ */
+class CategoryListAdapter extends ListAdapter<Pair<String, String>, ListItemViewHolder> implements ImagePrefetcher.ImageSource {
+
+    /**
+     * Categories are the same item if they have the same title, and unchanged if their image is
+     * the same.
+     */
+    private static final DiffUtil.ItemCallback<Pair<String, String>> DIFF_CALLBACK = new DiffUtil.ItemCallback<Pair<String, String>>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Pair<String, String> oldItem, @NonNull Pair<String, String> newItem) {
+            return oldItem.first.equals(newItem.first);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Pair<String, String> oldItem, @NonNull Pair<String, String> newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final CategorySelectedCommunicator categorySelectedCommunicator;
+
+    /**
+     * @param categorySelectedCommunicator The observer of item clicks
+     */
+    CategoryListAdapter(CategorySelectedCommunicator categorySelectedCommunicator) {
+        super(DIFF_CALLBACK);
+        this.categorySelectedCommunicator = categorySelectedCommunicator;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public ListItemViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return ListItemViewHolder.create(parent);
+    }
+
+    /**
+     * Sets the title, image and click listener of the category at the given position.
+     * @param holder The ViewHolder to bind
+     * @param position The position of the category in the list
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ListItemViewHolder holder, int position) {
+        Pair<String, String> category = getItem(position);
+        // Holders are shared with the other lists, so the binding adapter sets the listener
+        holder.itemView.setOnClickListener(v -> {
+            int clicked = holder.getBindingAdapterPosition();
+            if (clicked != RecyclerView.NO_POSITION)
+                categorySelectedCommunicator.categorySelected(getItem(clicked).first);
+        });
+        holder.tvTitle.setText(category.first);
+        ImageLoader.getInstance(holder.itemView.getContext()).loadCategory(holder.ivImage, category.second);
+    }
+
+    @Override
+    public String getImageUrl(int position) {
+        return getItem(position).second;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return ListItemViewHolder.VIEW_TYPE;
+    }
+
+    /**
+     * @param position The position of a category in the list
+     * @return An id derived from the category's title
+     */
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).first.hashCode();
+    }
+}
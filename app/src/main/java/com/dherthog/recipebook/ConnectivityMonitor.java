@@ -0,0 +1,159 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the network state of the device in memory, updated by a NetworkCallback, so checking it is
+ * a field read instead of a binder call on every tap. Actions that need the network can be queued
+ * while offline and are replayed on the UI thread once a network is available.
+ */
+class ConnectivityMonitor {
+
+    private static ConnectivityMonitor instance;
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // The capabilities of every network with internet access, by network
+    private final Map<Network, NetworkCapabilities> networks = new HashMap<>();
+    private volatile boolean online, metered;
+    // Actions waiting for a network, by key. Only accessed on the UI thread.
+    private final LinkedHashMap<String, Runnable> pending = new LinkedHashMap<>();
+
+    /**
+     * @param context Any Context of the application
+     * @return The shared ConnectivityMonitor
+     */
+    static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (instance == null)
+            instance = new ConnectivityMonitor(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Reads the current state and starts listening for changes.
+     * @param context The application context
+     */
+    private ConnectivityMonitor(Context context) {
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // The callback only reports changes, so the state starts from the active network
+        Network active = connectivityManager.getActiveNetwork();
+        if (active != null)
+            networkChanged(active, connectivityManager.getNetworkCapabilities(active));
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                // Capabilities are only delivered along with onAvailable from API 26
+                networkChanged(network, connectivityManager.getNetworkCapabilities(network));
+            }
+
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                networkChanged(network, capabilities);
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                networkChanged(network, null);
+            }
+        });
+    }
+
+    /**
+     * @return True if a network with internet access is available
+     */
+    boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * @return True if every available network is metered, e.g. mobile data, so traffic that is
+     *         not needed right away should be avoided
+     */
+    boolean isMetered() {
+        return metered;
+    }
+
+    /**
+     * Runs an action once a network is available, right away if one already is. An action queued
+     * under the same key as an earlier one replaces it, so only the latest is replayed. Must be
+     * called on the UI thread.
+     * @param key Identifies the action, e.g. the screen it loads
+     * @param action The action to run on the UI thread
+     */
+    void whenOnline(String key, Runnable action) {
+        pending.remove(key);
+        if (online) {
+            action.run();
+            return;
+        }
+        pending.put(key, action);
+    }
+
+    /**
+     * Drops the action queued under a key, e.g. when the user navigated elsewhere. Must be called
+     * on the UI thread.
+     * @param key The key the action was queued under
+     */
+    void cancel(String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Records the capabilities of a network and recomputes the state.
+     * @param network The changed network
+     * @param capabilities Its new capabilities, null if it was lost
+     */
+    private void networkChanged(Network network, NetworkCapabilities capabilities) {
+        boolean wasOnline;
+        synchronized (networks) {
+            if (capabilities == null || !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET))
+                networks.remove(network);
+            else
+                networks.put(network, capabilities);
+
+            boolean unmetered = false;
+            for (NetworkCapabilities available : networks.values())
+                unmetered |= available.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+
+            wasOnline = online;
+            online = !networks.isEmpty();
+            metered = online && !unmetered;
+        }
+
+        if (online && !wasOnline)
+            mainHandler.post(this::replay);
+    }
+
+    /**
+     * Runs the actions queued while offline, in the order they were queued.
+     */
+    private void replay() {
+        // Connectivity was lost again before the replay
+        if (!online)
+            return;
+
+        List<Runnable> actions = new ArrayList<>(pending.values());
+        pending.clear();
+        for (Runnable action : actions)
+            action.run();
+    }
+}
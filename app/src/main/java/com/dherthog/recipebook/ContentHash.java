@@ -0,0 +1,56 @@
+package com.dherthog.recipebook;
+
+/**
+ * A 64-bit FNV-1a hash of a sequence of strings or bytes, used to detect whether downloaded data
+ * differs from the stored copy without comparing every field. Null and empty strings hash
+ * differently, and every string is terminated so ("ab", "c") and ("a", "bc") hash differently.
+ */
+class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    /**
+     * Adds a string to the hash.
+     * @param value The string. This value may be null.
+     * @return This ContentHash, for chaining
+     */
+    ContentHash add(String value) {
+        if (value == null)
+            return addChar('\u0001');
+
+        for (int i = 0; i < value.length(); i++)
+            addChar(value.charAt(i));
+        return addChar('\u0000');
+    }
+
+    /**
+     * Adds raw bytes to the hash, e.g. a response body.
+     * @param bytes The bytes
+     * @return This ContentHash, for chaining
+     */
+    ContentHash add(byte[] bytes) {
+        for (byte b : bytes)
+            hash = (hash ^ (b & 0xff)) * PRIME;
+        return this;
+    }
+
+    /**
+     * @return The hash of everything added so far
+     */
+    long get() {
+        return hash;
+    }
+
+    /**
+     * @param c The char to mix into the hash
+     * @return This ContentHash, for chaining
+     */
+    private ContentHash addChar(char c) {
+        hash = (hash ^ (c & 0xff)) * PRIME;
+        hash = (hash ^ (c >>> 8)) * PRIME;
+        return this;
+    }
+}
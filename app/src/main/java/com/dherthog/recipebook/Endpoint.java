@@ -0,0 +1,82 @@
+package com.dherthog.recipebook;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * The TheMealDB api endpoints used by the application, along with their default timeouts, retry
+ * budgets and whether their responses are cached on disk.
+ */
+enum Endpoint {
+
+    CATEGORIES("categories.php", 3000, 5000, true, 3, 0),
+    FILTER("filter.php?c=", 3000, 5000, true, 3, 0),
+    // The user waits on lookups after every tap, so slow ones are hedged
+    LOOKUP("lookup.php?i=", 3000, 3000, true, 3, 800),
+    // Every keystroke is a new query, so search results are only cached in memory and a failed
+    // search is soon superseded by the next one
+    SEARCH("search.php?s=", 3000, 5000, false, 2, 0);
+
+    private static final String BASE_URL = "https://www.themealdb.com/api/json/v1/1/";
+
+    private final String path; // The path of the endpoint relative to BASE_URL
+    private final int connectTimeout, readTimeout; // Default timeouts in milliseconds
+    private final boolean cacheable; // True if responses are kept in the HttpCache
+    private final int maxAttempts; // The most attempts of a request, including the first
+    private final long hedgeDelayMs; // When a second request is raced against a slow one, 0 to never hedge
+
+    /**
+     * @param path The path of the endpoint relative to the api's base url
+     * @param connectTimeout The default connect timeout in milliseconds
+     * @param readTimeout The default read timeout in milliseconds
+     * @param cacheable True if responses are kept in the HttpCache
+     * @param maxAttempts The most attempts of a request, including the first
+     * @param hedgeDelayMs How long a request may take before a second one is raced against it, 0
+     *                     to never hedge
+     */
+    Endpoint(String path, int connectTimeout, int readTimeout, boolean cacheable, int maxAttempts, long hedgeDelayMs) {
+        this.path = path;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.cacheable = cacheable;
+        this.maxAttempts = maxAttempts;
+        this.hedgeDelayMs = hedgeDelayMs;
+    }
+
+    /**
+     * Builds the url of a request to this endpoint.
+     * @param parameter The parameter appended to the endpoint's path. This value may be null.
+     * @return The url to request
+     */
+    String getUrl(String parameter) {
+        if (parameter == null)
+            return BASE_URL + path;
+
+        try {
+            return BASE_URL + path + URLEncoder.encode(parameter, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    int getReadTimeout() {
+        return readTimeout;
+    }
+
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    long getHedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+}
@@ -5,9 +5,27 @@ package com.dherthog.recipebook;
  */
 public interface FavoriteCommunicator {
 
+    /**
+     * Receives the outcome of favoriting or unfavoriting a Recipe on the UI thread.
+     */
+    interface Listener {
+
+        /**
+         * Called once the change has been written to the DB.
+         * @param isFavorite True if the Recipe is now a favorite
+         */
+        void favoriteCommitted(boolean isFavorite);
+
+        /**
+         * Called if the change could not be written, so the Recipe is unchanged.
+         */
+        void favoriteFailed();
+    }
+
     /**
      * Notifies the ActivityCommunicator a Recipe has been favorited.
-     * @param recipe The favorited Recipe
+     * @param instructions The Instructions of the favorited Recipe
+     * @param listener Receives whether the Recipe is a favorite once the change is written
      */
-    void recipeFavorited(Recipe recipe);
+    void recipeFavorited(Instructions instructions, Listener listener);
 }
@@ -0,0 +1,48 @@
+package com.dherthog.recipebook;
+
+import java.util.List;
+
+/**
+ * An in-memory index of the ids of favorited Recipes. Loaded once from the database and kept in
+ * sync by FavoritesRepository on every insert and delete, so checking if a Recipe is a favorite is
+ * an allocation-free O(1) lookup on any thread.
+ */
+class FavoriteIndex {
+
+    private final IntHashSet ids = new IntHashSet(64);
+    private volatile boolean loaded;
+
+    /**
+     * Replaces the index with the ids stored in the database.
+     * @param favoriteIds The ids of all favorited Recipes
+     */
+    synchronized void load(List<Integer> favoriteIds) {
+        ids.clear();
+        for (int i = 0; i < favoriteIds.size(); i++)
+            ids.add(favoriteIds.get(i));
+        loaded = true;
+    }
+
+    /**
+     * @return True once the index reflects the database
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param id The id of a Recipe
+     * @return True if the Recipe is favorited. Only meaningful once the index is loaded.
+     */
+    synchronized boolean contains(int id) {
+        return ids.contains(id);
+    }
+
+    synchronized void add(int id) {
+        ids.add(id);
+    }
+
+    synchronized void remove(int id) {
+        ids.remove(id);
+    }
+}
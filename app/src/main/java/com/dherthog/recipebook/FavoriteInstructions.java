@@ -0,0 +1,86 @@
+package com.dherthog.recipebook;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.util.List;
+
+/**
+ * The complete Instructions of a favorited Recipe, stored so favorites open without a network
+ * connection. Unlike cached Instructions they never expire and are only deleted with the favorite.
+ */
+@Entity(tableName = "favorite_instructions")
+public class FavoriteInstructions {
+
+    @PrimaryKey
+    private final int id; // The id of the Recipe in TMDB
+    @ColumnInfo
+    private final String name, category, area, imageUrl, instructions;
+    @ColumnInfo
+    private final List<Ingredient> ingredients;
+
+    /**
+     * @param id The ID of the Recipe in the TMDB
+     * @param name The name of the Recipe in the TMDB
+     * @param category The category of the Recipe in the TMDB
+     * @param area The area of the Recipe in the TMDB
+     * @param imageUrl The imageUrl of the Recipe in the TMDB
+     * @param instructions The instructions of the Recipe in the TMDB
+     * @param ingredients The ingredients of the Recipe in the TMDB
+     */
+    public FavoriteInstructions(int id, String name, String category, String area, String imageUrl, String instructions, List<Ingredient> ingredients) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.area = area;
+        this.imageUrl = imageUrl;
+        this.instructions = instructions;
+        this.ingredients = ingredients;
+    }
+
+    /**
+     * @param instructions The Instructions of the favorited Recipe
+     * @return A FavoriteInstructions storing the given Instructions
+     */
+    static FavoriteInstructions from(Instructions instructions) {
+        return new FavoriteInstructions(instructions.getId(), instructions.getName(),
+                instructions.getCategory(), instructions.getArea(), instructions.getImageUrl(),
+                instructions.getInstructions(), instructions.getIngredients());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getArea() {
+        return area;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public List<Ingredient> getIngredients() {
+        return ingredients;
+    }
+
+    /**
+     * @return The stored Instructions
+     */
+    Instructions toInstructions() {
+        return new Instructions(id, name, category, area, imageUrl, instructions, ingredients);
+    }
+}
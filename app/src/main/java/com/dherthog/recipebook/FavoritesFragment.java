@@ -5,42 +5,47 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
-import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
-import com.squareup.picasso.Picasso;
-
-import java.util.ArrayList;
+import java.util.Locale;
 
 /**
- * A Fragment to display favorited meal Recipes.
+ * A Fragment to display favorited meal Recipes. The favorites and the progress of their refresh
+ * are read from the RecipeBookViewModel, so the Fragment can be recreated by the framework and a
+ * refresh keeps running through configuration changes.
  */
 public class FavoritesFragment extends Fragment {
 
-    private final RecipeSelectedCommunicator recipeSelectedCommunicator;
-    private final ArrayList<Recipe> recipes;
+    private RecipeSelectedCommunicator recipeSelectedCommunicator;
+    private RefreshCommunicator refreshCommunicator;
+    private RecyclerView.RecycledViewPool listItemViewPool; // Shared by all lists of list_item
     private View view; // The root View of the Fragment
+    private RecipeBookViewModel viewModel;
+    private SwipeRefreshLayout srlFavorites;
+    private TextView tvRefreshProgress;
 
     /**
-     * Constructor for passing a RecipeSelectedCommunicator, the application context, and Recipes to
-     * display.
-     * @param recipeSelectedCommunicator The observer of ListView clicks.
-     * @param recipes An ArrayList of Recipes
+     * Gets the observers of list clicks and pull to refresh and the shared pool of list_item Views
+     * from the Activity.
+     * @param context The Activity the Fragment is attached to
      */
-    public FavoritesFragment(RecipeSelectedCommunicator recipeSelectedCommunicator, ArrayList<Recipe> recipes) {
-        this.recipeSelectedCommunicator = recipeSelectedCommunicator;
-        this.recipes = recipes;
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        recipeSelectedCommunicator = (RecipeSelectedCommunicator) context;
+        refreshCommunicator = (RefreshCommunicator) context;
+        listItemViewPool = ((ViewPoolProvider) context).getListItemViewPool();
     }
 
     /**
-     * Called to have the fragment instantiate its root View and ListView to display Recipes.
+     * Called to have the fragment instantiate its root View and list to display Recipes.
      * @param inflater The LayoutInflater object that can be used to inflate any views in the
      *                 fragment
      * @param parent If non-null, this is the parent view that the fragment's UI should be attached
@@ -52,77 +57,60 @@ public class FavoritesFragment extends Fragment {
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState) {
         // Defines the xml file for the fragment
-        view = inflater.inflate(R.layout.fragment_recipes, parent, false);
+        view = inflater.inflate(R.layout.fragment_favorites, parent, false);
+        viewModel = new ViewModelProvider(requireActivity()).get(RecipeBookViewModel.class);
 
         // Displays the favorited Recipes
         displayListView();
 
+        // Pulling the list down refreshes every favorite from TMDB
+        tvRefreshProgress = view.findViewById(R.id.tv_refresh_progress);
+        srlFavorites = view.findViewById(R.id.srl_favorites);
+        srlFavorites.setOnRefreshListener(() -> {
+            // The indicator is shown again by isRefreshing() once the refresh starts
+            srlFavorites.setRefreshing(false);
+            refreshCommunicator.refreshFavorites();
+        });
+        viewModel.isRefreshing().observe(getViewLifecycleOwner(), srlFavorites::setRefreshing);
+        viewModel.getRefreshProgress().observe(getViewLifecycleOwner(), this::showRefreshProgress);
+
         return view;
     }
 
     /**
-     * Instantiates the Fragment's ListView to display Recipe and sets an OnItemClickedListener for
-     * the items in the list.
+     * Displays the progress of a refresh of the favorites.
+     * @param progress The progress so far
      */
-    private void displayListView() {
-        ListAdapter adapter = new ListAdapter();
-        ListView listView = (ListView) view.findViewById(R.id.lv_recipes);
-        listView.setAdapter(adapter);
-
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                recipeSelectedCommunicator.recipeSelected(recipes.get(position).getId());
-            }
-        });
+    private void showRefreshProgress(FavoritesRefresher.Progress progress) {
+        tvRefreshProgress.setVisibility(View.VISIBLE);
+        tvRefreshProgress.setText(String.format(Locale.getDefault(), "Refreshed %d of %d (%d updated, %d failed) at %.1f/s",
+                progress.getCompleted(), progress.getTotal(), progress.getUpdated(), progress.getFailed(), progress.getThroughput()));
     }
 
     /**
-     * An ArrayAdapter class to instantiate each item's View.
+     * Releases the Views of the destroyed Fragment View.
      */
-    private class ListAdapter extends ArrayAdapter<Recipe> {
-
-        /**
-         * Create a new ListViewAdapter.
-         */
-        public ListAdapter() {
-            super(view.getContext(), R.layout.list_item);
-        }
-
-        /**
-         * Instantiates a View for a single item in the list of Recipes.
-         * @param position The position the the item in the list.
-         * @param convertView This value may be null
-         * @param parent The parent of the newly instantiated View
-         * @return The newly instantiated View
-         */
-        @NonNull
-        @Override
-        public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-            Recipe recipe = recipes.get(position);
-
-            // Check if the View is being reused
-            if (convertView == null) {
-                convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
-            }
-
-            TextView tvRecipieName = convertView.findViewById(R.id.tv_item_title);
-            ImageView ivRecipeImage = convertView.findViewById(R.id.iv_item);
-
-            // Set the name
-            tvRecipieName.setText(recipe.getName());
-            // Set the image
-            Picasso.with(getContext()).load(recipe.getImageUrl()).fit().into(ivRecipeImage);
-
-            return convertView;
-        }
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        srlFavorites = null;
+        tvRefreshProgress = null;
+    }
 
-        /**
-         * @return The number of elements in the list.
-         */
-        @Override
-        public int getCount() {
-            return recipes.size();
-        }
+    /**
+     * Instantiates the Fragment's RecyclerView to display Recipes. Selection of a Recipe is
+     * reported by the RecipeListAdapter.
+     */
+    private void displayListView() {
+        RecipeListAdapter adapter = new RecipeListAdapter(recipeSelectedCommunicator);
+        RecyclerView recyclerView = view.findViewById(R.id.rv_recipes);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(view.getContext());
+        // Return the ViewHolders to the shared pool when the Fragment's View is destroyed
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(listItemViewPool);
+        recyclerView.setAdapter(adapter);
+        // Only the rows that changed are rebound when the favorites are reloaded
+        viewModel.getFavorites().observe(getViewLifecycleOwner(), adapter::submitList);
     }
 }
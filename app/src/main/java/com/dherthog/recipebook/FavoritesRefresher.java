@@ -0,0 +1,242 @@
+package com.dherthog.recipebook;
+
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-downloads the Instructions of every favorite and stores what changed upstream, such as a new
+ * name or image URL. Lookups fan out over a bounded number of threads and transient failures are
+ * retried by the HttpTransport. Results are written as they arrive in batches of BATCH_SIZE, one
+ * transaction each, and rows whose content is unchanged are not rewritten. All methods block and
+ * must be called off the UI thread.
+ */
+class FavoritesRefresher {
+
+    // The number of downloaded favorites written per transaction
+    static final int BATCH_SIZE = 20;
+    // How often a waiting refresh checks whether it was cancelled
+    private static final long POLL_INTERVAL_MS = 250;
+
+    /**
+     * Receives the progress of a refresh on the thread running it.
+     */
+    interface Listener {
+
+        /**
+         * Called after each written batch.
+         * @param progress The progress of the refresh so far
+         */
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * A snapshot of the progress of a refresh.
+     */
+    static class Progress {
+
+        private final int total, completed, updated, failed;
+        private final long elapsedMs;
+
+        /**
+         * @param total The number of favorites being refreshed
+         * @param completed The number of favorites looked up so far, including failures
+         * @param updated The number of favorites whose stored data changed
+         * @param failed The number of favorites that could not be looked up
+         * @param elapsedMs The time since the refresh started, in milliseconds
+         */
+        Progress(int total, int completed, int updated, int failed, long elapsedMs) {
+            this.total = total;
+            this.completed = completed;
+            this.updated = updated;
+            this.failed = failed;
+            this.elapsedMs = elapsedMs;
+        }
+
+        int getTotal() {
+            return total;
+        }
+
+        int getCompleted() {
+            return completed;
+        }
+
+        int getUpdated() {
+            return updated;
+        }
+
+        int getFailed() {
+            return failed;
+        }
+
+        long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * @return The number of favorites looked up per second so far
+         */
+        double getThroughput() {
+            return elapsedMs == 0 ? 0 : completed * 1000.0 / elapsedMs;
+        }
+
+        /**
+         * @return True if every favorite has been looked up
+         */
+        boolean isDone() {
+            return completed == total;
+        }
+    }
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeDatabase database;
+    private final RecipeDao recipeDao;
+    private final int concurrency; // The most lookups running at the same time
+
+    /**
+     * @param recipeRepository The source of the lookups
+     * @param database The database storing the favorites
+     * @param concurrency The most lookups running at the same time
+     */
+    FavoritesRefresher(RecipeRepository recipeRepository, RecipeDatabase database, int concurrency) {
+        this.recipeRepository = recipeRepository;
+        this.database = database;
+        this.recipeDao = database.getRecipeDAO();
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Refreshes every favorite.
+     * @param signal Stops the refresh when cancelled. Batches already written are kept.
+     * @param listener Receives the progress after each batch. This value may be null.
+     * @return The final progress of the refresh
+     * @throws InterruptedException If the refresh was cancelled or interrupted
+     */
+    Progress refresh(CancellationSignal signal, Listener listener) throws InterruptedException {
+        long start = SystemClock.elapsedRealtime();
+        List<Integer> ids = recipeDao.getAllIds();
+        if (ids.isEmpty())
+            return new Progress(0, 0, 0, 0, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, ids.size()));
+        signal.setOnCancelListener(executor::shutdownNow);
+        try {
+            CompletionService<Instructions> lookups = new ExecutorCompletionService<>(executor);
+            for (int id : ids)
+                lookups.submit(() -> recipeRepository.lookupInstructions(id));
+
+            int completed = 0, updated = 0, failed = 0;
+            List<Instructions> batch = new ArrayList<>();
+            while (completed < ids.size()) {
+                if (signal.isCanceled())
+                    throw new InterruptedException();
+
+                // Collect results in the order they finish, so a slow lookup holds nothing back.
+                // Lookups dropped by a cancellation never finish, so the wait is bounded.
+                Future<Instructions> lookup = lookups.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (lookup == null)
+                    continue;
+
+                try {
+                    Instructions instructions = lookup.get();
+                    if (instructions != null)
+                        batch.add(instructions);
+                } catch (ExecutionException e) {
+                    // The stored data is kept until the next refresh
+                    failed++;
+                }
+                completed++;
+
+                if (batch.size() == BATCH_SIZE || completed == ids.size()) {
+                    updated += storeChanged(batch);
+                    batch.clear();
+
+                    if (listener != null)
+                        listener.onProgress(new Progress(ids.size(), completed, updated, failed, SystemClock.elapsedRealtime() - start));
+                }
+            }
+            return new Progress(ids.size(), completed, updated, failed, SystemClock.elapsedRealtime() - start);
+        } finally {
+            signal.setOnCancelListener(null);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the downloaded favorites whose name, image or Instructions changed, in one transaction.
+     * Recipes unfavorited during the refresh are skipped.
+     * @param batch The downloaded Instructions
+     * @return The number of favorites written
+     */
+    private int storeChanged(List<Instructions> batch) {
+        if (batch.isEmpty())
+            return 0;
+
+        List<Integer> ids = new ArrayList<>();
+        for (Instructions instructions : batch)
+            ids.add(instructions.getId());
+
+        return database.runInTransaction(() -> {
+            Map<Integer, Recipe> recipes = new HashMap<>();
+            for (Recipe recipe : recipeDao.getRecipes(ids))
+                recipes.put(recipe.getId(), recipe);
+
+            Map<Integer, Long> storedHashes = new HashMap<>();
+            for (FavoriteInstructions stored : recipeDao.getInstructions(ids))
+                storedHashes.put(stored.getId(), stored.toInstructions().contentHash());
+
+            List<Recipe> changedRecipes = new ArrayList<>();
+            List<FavoriteInstructions> changedInstructions = new ArrayList<>();
+            for (Instructions instructions : batch) {
+                // Unfavorited while downloading
+                Recipe recipe = recipes.get(instructions.getId());
+                if (recipe == null)
+                    continue;
+
+                Long storedHash = storedHashes.get(instructions.getId());
+                boolean recipeChanged = !equals(recipe.getName(), instructions.getName())
+                        || !equals(recipe.getImageUrl(), instructions.getImageUrl());
+                boolean instructionsChanged = storedHash == null || storedHash != instructions.contentHash();
+
+                if (recipeChanged)
+                    changedRecipes.add(new Recipe(instructions.getId(), instructions.getName(), instructions.getImageUrl()));
+                if (instructionsChanged)
+                    changedInstructions.add(FavoriteInstructions.from(instructions));
+            }
+
+            if (!changedRecipes.isEmpty())
+                recipeDao.update(changedRecipes);
+            if (!changedInstructions.isEmpty())
+                recipeDao.insertInstructions(changedInstructions);
+
+            Set<Integer> changed = new HashSet<>();
+            for (Recipe recipe : changedRecipes)
+                changed.add(recipe.getId());
+            for (FavoriteInstructions instructions : changedInstructions)
+                changed.add(instructions.getId());
+            return changed.size();
+        });
+    }
+
+    /**
+     * @param a A String. This value may be null.
+     * @param b A String. This value may be null.
+     * @return True if both are null or equal
+     */
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
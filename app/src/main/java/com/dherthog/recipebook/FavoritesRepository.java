@@ -0,0 +1,141 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+
+/**
+ * The asynchronous source of the user's favorited Recipes. Every RecipeDao call runs on the
+ * TaskEngine's database thread and results are delivered on the UI thread, so the UI thread never
+ * touches the disk. Favorite checks are answered by an in-memory FavoriteIndex once it has loaded.
+ * The complete Instructions of every favorite are stored, so favorites open without a network.
+ */
+class FavoritesRepository {
+
+    private static FavoritesRepository instance;
+
+    private final RecipeDatabase database;
+    private final RecipeDao recipeDao;
+    private final TaskEngine taskEngine;
+    private final FavoriteIndex favoriteIndex = new FavoriteIndex();
+
+    /**
+     * @param context Any Context of the application
+     * @return The shared FavoritesRepository
+     */
+    static synchronized FavoritesRepository getInstance(Context context) {
+        if (instance == null)
+            instance = new FavoritesRepository(RecipeDatabase.getInstance(context), TaskEngine.getInstance());
+        return instance;
+    }
+
+    /**
+     * @param database The database storing the favorites
+     * @param taskEngine The TaskEngine running the queries
+     */
+    FavoritesRepository(RecipeDatabase database, TaskEngine taskEngine) {
+        this.database = database;
+        this.recipeDao = database.getRecipeDAO();
+        this.taskEngine = taskEngine;
+
+        // Queued first on the database thread, so every later write sees a loaded index
+        taskEngine.database(() -> {
+            favoriteIndex.load(recipeDao.getAllIds());
+            return null;
+        }, null);
+    }
+
+    /**
+     * @return The index of favorited Recipe ids, for synchronous checks such as list rows
+     */
+    FavoriteIndex getFavoriteIndex() {
+        return favoriteIndex;
+    }
+
+    /**
+     * Loads all favorited Recipes.
+     * @param callback Receives the Recipes on the UI thread
+     * @return A handle to cancel the query
+     */
+    TaskHandle<ArrayList<Recipe>> getAll(TaskEngine.Callback<ArrayList<Recipe>> callback) {
+        return taskEngine.database(() -> new ArrayList<>(recipeDao.getAllRecipes()), callback);
+    }
+
+    /**
+     * Determines if a Recipe is favorited. Answers immediately once the FavoriteIndex has loaded.
+     * Must be called on the UI thread.
+     * @param id The id of the Recipe
+     * @param callback Receives true on the UI thread if the Recipe is favorited
+     * @return A handle to cancel the query
+     */
+    TaskHandle<Boolean> isFavorite(int id, TaskEngine.Callback<Boolean> callback) {
+        if (favoriteIndex.isLoaded())
+            return taskEngine.completed(favoriteIndex.contains(id), callback);
+
+        // Fall back on the database until the index has loaded
+        return taskEngine.database(() -> recipeDao.isFavorite(id), callback);
+    }
+
+    /**
+     * Loads the stored Instructions of a favorited Recipe with a single primary key read.
+     * @param id The id of the Recipe
+     * @param callback Receives the Instructions on the UI thread, or null if the Recipe is not
+     *                 favorited or was favorited before its Instructions were stored
+     * @return A handle to cancel the query
+     */
+    TaskHandle<Instructions> getInstructions(int id, TaskEngine.Callback<Instructions> callback) {
+        return taskEngine.database(() -> {
+            FavoriteInstructions stored = recipeDao.getInstructions(id);
+            return stored == null ? null : stored.toInstructions();
+        }, callback);
+    }
+
+    /**
+     * Stores the Instructions of a Recipe if it is favorited, e.g. for a Recipe favorited before
+     * Instructions were stored along with favorites.
+     * @param instructions The downloaded Instructions
+     */
+    void storeInstructions(Instructions instructions) {
+        taskEngine.database(() -> {
+            database.runInTransaction(() -> {
+                if (recipeDao.isFavorite(instructions.getId()))
+                    recipeDao.insertInstructions(FavoriteInstructions.from(instructions));
+            });
+            return null;
+        }, null);
+    }
+
+    /**
+     * Inserts the Recipe and its complete Instructions if it is not favorited, deletes them
+     * otherwise.
+     * @param instructions The Instructions of the Recipe
+     * @param callback Receives true on the UI thread if the Recipe is now favorited. This value may
+     *                 be null.
+     * @return A handle to cancel the write if it has not started, and the callback
+     */
+    TaskHandle<Boolean> toggle(Instructions instructions, TaskEngine.Callback<Boolean> callback) {
+        int id = instructions.getId();
+        return taskEngine.database(() -> {
+            boolean favorited = database.runInTransaction(() -> {
+                // Delete the corresponding Recipe if it is stored in the DB
+                if (recipeDao.isFavorite(id)) {
+                    recipeDao.delete(new Recipe(id, instructions.getName(), instructions.getImageUrl()));
+                    recipeDao.deleteInstructions(id);
+                    return false;
+                }
+
+                // Insert the Recipe into the DB
+                recipeDao.insert(new Recipe(id, instructions.getName(), instructions.getImageUrl()));
+                recipeDao.insertInstructions(FavoriteInstructions.from(instructions));
+                return true;
+            });
+
+            // Keep the index in sync once the write has committed
+            if (favorited)
+                favoriteIndex.add(id);
+            else
+                favoriteIndex.remove(id);
+            return favorited;
+        }, callback);
+    }
+}
@@ -0,0 +1,300 @@
+package com.dherthog.recipebook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An on-disk cache of decoded api response bodies, bounded by a byte budget with least recently
+ * used eviction. Every entry keeps the validators and freshness the server sent along with a hash
+ * of the body, so HttpTransport can revalidate with a conditional request, or compare hashes when
+ * the server sends no validators. Safe for concurrent use.
+ */
+class HttpCache {
+
+    // Bumped whenever the format of the metadata files changes, older files are ignored
+    private static final int FORMAT_VERSION = 1;
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * The metadata of a cached response.
+     */
+    static class Entry {
+        final String url;
+        final String etag; // This value may be null
+        final String lastModified; // This value may be null
+        final long storedAt; // When the response was stored or revalidated, in milliseconds since epoch
+        final long maxAgeMs; // How long the response is fresh, 0 if it must always be revalidated
+        final long contentHash; // The ContentHash of the body
+        final long size; // The size of the body in bytes
+
+        /**
+         * @param url The url of the request
+         * @param etag The ETag of the response. This value may be null.
+         * @param lastModified The Last-Modified date of the response. This value may be null.
+         * @param storedAt When the response was stored or revalidated, in milliseconds since epoch
+         * @param maxAgeMs How long the response is fresh, 0 if it must always be revalidated
+         * @param contentHash The ContentHash of the body
+         * @param size The size of the body in bytes
+         */
+        Entry(String url, String etag, String lastModified, long storedAt, long maxAgeMs, long contentHash, long size) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+            this.maxAgeMs = maxAgeMs;
+            this.contentHash = contentHash;
+            this.size = size;
+        }
+
+        /**
+         * @param now The current time in milliseconds since epoch
+         * @return True if the response may be used without asking the server
+         */
+        boolean isFresh(long now) {
+            return now - storedAt < maxAgeMs;
+        }
+
+        /**
+         * @param storedAt When the response was revalidated, in milliseconds since epoch
+         * @param maxAgeMs How long the response is fresh from now on
+         * @return A copy of this Entry marked as revalidated
+         */
+        Entry revalidated(long storedAt, long maxAgeMs) {
+            return new Entry(url, etag, lastModified, storedAt, maxAgeMs, contentHash, size);
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    // Entries keyed by url, least recently used first. Loaded from disk on first use.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    /**
+     * @param directory The directory holding the cache, created if necessary
+     * @param maxBytes The most bytes of response bodies kept on disk
+     */
+    HttpCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param url The url of a request
+     * @return The metadata of the cached response, or null if none is cached
+     */
+    synchronized Entry get(String url) {
+        load();
+        return entries.get(url);
+    }
+
+    /**
+     * Opens the body of a cached response.
+     * @param entry The metadata of the cached response
+     * @return A stream of the decoded body
+     * @throws IOException If the body was evicted or could not be read
+     */
+    InputStream openBody(Entry entry) throws IOException {
+        return new BufferedInputStream(new FileInputStream(file(entry.url, BODY_SUFFIX)));
+    }
+
+    /**
+     * Stores a response, replacing any response cached for its url, then evicts the least recently
+     * used responses until the cache fits its budget.
+     * @param entry The metadata of the response
+     * @param body The decoded body
+     */
+    synchronized void put(Entry entry, byte[] body) {
+        load();
+        if (body.length > maxBytes)
+            return;
+
+        try {
+            writeAtomically(file(entry.url, BODY_SUFFIX), body);
+            writeMeta(entry);
+        } catch (IOException e) {
+            // A response that can't be cached is simply downloaded again next time
+            e.printStackTrace();
+            remove(entry.url);
+            return;
+        }
+
+        Entry previous = entries.put(entry.url, entry);
+        if (previous != null)
+            totalBytes -= previous.size;
+        totalBytes += entry.size;
+        trim();
+    }
+
+    /**
+     * Records that the server confirmed a cached response is unchanged.
+     * @param entry The revalidated metadata of the response
+     */
+    synchronized void update(Entry entry) {
+        load();
+        if (!entries.containsKey(entry.url))
+            return;
+
+        try {
+            writeMeta(entry);
+            entries.put(entry.url, entry);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the response cached for a url.
+     * @param url The url of the request
+     */
+    synchronized void remove(String url) {
+        load();
+        Entry entry = entries.remove(url);
+        if (entry != null)
+            totalBytes -= entry.size;
+        delete(url);
+    }
+
+    /**
+     * Reads the metadata of every cached response, ordered by when it was last used.
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            directory.mkdirs();
+            return;
+        }
+
+        List<File> metaFiles = new ArrayList<>();
+        for (File file : files) {
+            // Temporary files are left behind by interrupted writes
+            if (file.getName().endsWith(META_SUFFIX))
+                metaFiles.add(file);
+            else if (file.getName().endsWith(TEMP_SUFFIX))
+                file.delete();
+        }
+        // Metadata is rewritten whenever a response is stored or revalidated, approximating its use
+        Collections.sort(metaFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File metaFile : metaFiles) {
+            Entry entry = readMeta(metaFile);
+            if (entry == null || !file(entry.url, BODY_SUFFIX).exists()) {
+                metaFile.delete();
+                continue;
+            }
+            entries.put(entry.url, entry);
+            totalBytes += entry.size;
+        }
+        trim();
+    }
+
+    /**
+     * Evicts the least recently used responses until the cache fits its budget.
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= eldest.size;
+            delete(eldest.url);
+        }
+    }
+
+    /**
+     * @param metaFile A metadata file
+     * @return The metadata it holds, or null if it is unreadable or of an older format
+     */
+    private static Entry readMeta(File metaFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)))) {
+            if (in.readInt() != FORMAT_VERSION)
+                return null;
+
+            String url = in.readUTF();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            return new Entry(url, etag, lastModified, in.readLong(), in.readLong(), in.readLong(), in.readLong());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param entry The metadata to write to its metadata file
+     * @throws IOException If the file could not be written
+     */
+    private void writeMeta(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(entry.url);
+            out.writeBoolean(entry.etag != null);
+            if (entry.etag != null)
+                out.writeUTF(entry.etag);
+            out.writeBoolean(entry.lastModified != null);
+            if (entry.lastModified != null)
+                out.writeUTF(entry.lastModified);
+            out.writeLong(entry.storedAt);
+            out.writeLong(entry.maxAgeMs);
+            out.writeLong(entry.contentHash);
+            out.writeLong(entry.size);
+        }
+        writeAtomically(file(entry.url, META_SUFFIX), bytes.toByteArray());
+    }
+
+    /**
+     * Writes a file through a temporary file, so readers never see a partial file.
+     * @param file The file to write
+     * @param content The content of the file
+     * @throws IOException If the file could not be written
+     */
+    private static void writeAtomically(File file, byte[] content) throws IOException {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            out.write(content);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not write " + file);
+        }
+    }
+
+    /**
+     * @param url The url of a request
+     */
+    private void delete(String url) {
+        file(url, BODY_SUFFIX).delete();
+        file(url, META_SUFFIX).delete();
+    }
+
+    /**
+     * @param url The url of a request
+     * @param suffix BODY_SUFFIX or META_SUFFIX
+     * @return The file holding the url's body or metadata
+     */
+    private File file(String url, String suffix) {
+        return new File(directory, Long.toHexString(new ContentHash().add(url).get()) + suffix);
+    }
+}
@@ -0,0 +1,52 @@
+package com.dherthog.recipebook;
+
+/**
+ * The outcome of a cached GET request: either a decoded body, or the knowledge that the body is
+ * unchanged since it was last downloaded, in which case it was not decoded again.
+ * @param <T> The type of the decoded body
+ */
+class HttpResult<T> {
+
+    private final T value;
+    private final boolean unchanged;
+
+    /**
+     * @param value The decoded body. This value may be null.
+     * @param unchanged True if the body is unchanged and was not decoded
+     */
+    private HttpResult(T value, boolean unchanged) {
+        this.value = value;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * @param value The decoded body. This value may be null.
+     * @param <T> The type of the decoded body
+     * @return A result holding a decoded body
+     */
+    static <T> HttpResult<T> of(T value) {
+        return new HttpResult<>(value, false);
+    }
+
+    /**
+     * @param <T> The type of the decoded body
+     * @return A result for a body that is unchanged since it was last downloaded
+     */
+    static <T> HttpResult<T> unchanged() {
+        return new HttpResult<>(null, true);
+    }
+
+    /**
+     * @return True if the body is unchanged since it was last downloaded and was not decoded
+     */
+    boolean isUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return The decoded body, null if it is unchanged
+     */
+    T getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dherthog.recipebook;
+
+import java.io.IOException;
+
+/**
+ * Thrown when TheMealDB answers a request with an unsuccessful status code.
+ */
+class HttpStatusException extends IOException {
+
+    private final int statusCode; // The status code of the response
+
+    /**
+     * @param statusCode The status code of the response
+     */
+    HttpStatusException(int statusCode) {
+        super("Connection not successful! (" + statusCode + ")");
+        this.statusCode = statusCode;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return True if the same request may succeed later, e.g. after a server error or when
+     *         rate limited
+     */
+    boolean isTransient() {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+}
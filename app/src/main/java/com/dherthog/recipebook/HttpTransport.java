@@ -0,0 +1,500 @@
+package com.dherthog.recipebook;
+
+import android.util.MalformedJsonException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The single transport used for every call to TheMealDB. Connections are kept alive and pooled by
+ * HttpURLConnection as long as every response body is fully read and closed, which this class
+ * guarantees. Responses of cacheable Endpoints are kept in an HttpCache and revalidated, and
+ * failed requests are retried within each Endpoint's budget.
+ */
+class HttpTransport {
+
+    private static HttpTransport instance;
+
+    // Timeouts that override an Endpoint's defaults, stored as {connectTimeout, readTimeout}
+    private final EnumMap<Endpoint, int[]> timeouts = new EnumMap<>(Endpoint.class);
+    private volatile HttpCache cache; // The cache of api responses. This value may be null.
+    // Limits the retries and hedges of each Endpoint
+    private final EnumMap<Endpoint, RetryBudget> retryBudgets = new EnumMap<>(Endpoint.class);
+    // Runs both sides of hedged requests
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool();
+
+    // The cap of the first retry's delay, doubled for each further retry up to MAX_BACKOFF_MS
+    private static final long BASE_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    /**
+     * @return The shared HttpTransport
+     */
+    static synchronized HttpTransport getInstance() {
+        if (instance == null)
+            instance = new HttpTransport();
+        return instance;
+    }
+
+    private HttpTransport() {
+        for (Endpoint endpoint : Endpoint.values())
+            retryBudgets.put(endpoint, new RetryBudget());
+    }
+
+    /**
+     * Overrides the default timeouts of an Endpoint.
+     * @param endpoint The Endpoint to configure
+     * @param connectTimeout The connect timeout in milliseconds
+     * @param readTimeout The read timeout in milliseconds
+     */
+    synchronized void setTimeouts(Endpoint endpoint, int connectTimeout, int readTimeout) {
+        timeouts.put(endpoint, new int[] {connectTimeout, readTimeout});
+    }
+
+    /**
+     * Installs the on-disk cache of api responses. Until a cache is installed every request is
+     * downloaded.
+     * @param cache The HttpCache to keep responses of cacheable Endpoints in
+     */
+    void setCache(HttpCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Performs a GET request against the given Endpoint and decodes the response, from the cache
+     * if it is fresh or confirmed unchanged by the server.
+     * @param endpoint The Endpoint to call
+     * @param parameter The parameter of the request. This value may be null.
+     * @param parser The ResponseParser used to decode the body
+     * @param <T> The type of the decoded result
+     * @return The decoded body of the response
+     * @throws IOException If the request failed, the response was not successful or the body could
+     *                     not be decoded
+     */
+    <T> T get(Endpoint endpoint, String parameter, ResponseParser<T> parser) throws IOException {
+        return fetch(endpoint, parameter, parser, false).getValue();
+    }
+
+    /**
+     * Performs a GET request against the given Endpoint. Requests failing with a transient error are
+     * retried up to the Endpoint's attempt limit with exponential backoff and full jitter. Slow
+     * requests to hedged Endpoints are raced against a second request. Retries and hedges are
+     * limited by the Endpoint's RetryBudget.
+     * @param endpoint The Endpoint to call
+     * @param parameter The parameter of the request. This value may be null.
+     * @param parser The ResponseParser used to decode the body
+     * @param acceptUnchanged True if the caller still holds the result of the last download, so an
+     *                        unchanged body need not be decoded again
+     * @param <T> The type of the decoded result
+     * @return The decoded body, or an unchanged result if acceptUnchanged is set and the body is
+     *         the same as when it was last downloaded
+     * @throws IOException If the last attempt failed, the response was not successful or the body
+     *                     could not be decoded
+     */
+    <T> HttpResult<T> fetch(Endpoint endpoint, String parameter, ResponseParser<T> parser, boolean acceptUnchanged) throws IOException {
+        RetryBudget budget = retryBudgets.get(endpoint);
+        budget.deposit();
+
+        Request<T> request = () -> attempt(endpoint, parameter, parser, acceptUnchanged);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (endpoint.getHedgeDelayMs() > 0)
+                    return hedged(endpoint, budget, request);
+                return request.run();
+            } catch (IOException e) {
+                if (attempt >= endpoint.getMaxAttempts() || !isTransient(e) || !budget.tryWithdraw())
+                    throw e;
+                sleep(backoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * Performs a request, and races a second identical request against it if it has not finished
+     * after the Endpoint's hedge delay. The first successful response wins and the other request is
+     * abandoned.
+     * @param endpoint The Endpoint called
+     * @param budget The RetryBudget of the Endpoint, which pays for the second request
+     * @param request The request to perform
+     * @param <T> The type of the decoded result
+     * @return The result of the first successful request
+     * @throws IOException If every request made failed
+     */
+    private <T> HttpResult<T> hedged(Endpoint endpoint, RetryBudget budget, Request<T> request) throws IOException {
+        CompletionService<HttpResult<T>> race = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<HttpResult<T>>> requests = new ArrayList<>(2);
+        requests.add(race.submit(request::run));
+        try {
+            Future<HttpResult<T>> done = race.poll(endpoint.getHedgeDelayMs(), TimeUnit.MILLISECONDS);
+            if (done == null) {
+                // The request is in the slow tail, so a second one likely finishes first
+                if (budget.tryWithdraw())
+                    requests.add(race.submit(request::run));
+                done = race.take();
+            }
+
+            try {
+                return result(done);
+            } catch (IOException e) {
+                // The other request may still succeed
+                if (requests.size() == 1)
+                    throw e;
+                return result(race.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + endpoint);
+        } finally {
+            // A losing request is bounded by its read timeout
+            for (Future<HttpResult<T>> future : requests)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Performs a single attempt of a GET request. Responses of cacheable Endpoints are stored in
+     * the HttpCache and revalidated with If-None-Match / If-Modified-Since. If the server sends no
+     * validators, a downloaded body is compared with the cached one by hash.
+     * @param endpoint The Endpoint to call
+     * @param parameter The parameter of the request. This value may be null.
+     * @param parser The ResponseParser used to decode the body
+     * @param acceptUnchanged True if the caller still holds the result of the last download, so an
+     *                        unchanged body need not be decoded again
+     * @param <T> The type of the decoded result
+     * @return The decoded body, or an unchanged result if acceptUnchanged is set and the body is
+     *         the same as when it was last downloaded
+     * @throws IOException If the request failed, the response was not successful or the body could
+     *                     not be decoded
+     */
+    private <T> HttpResult<T> attempt(Endpoint endpoint, String parameter, ResponseParser<T> parser, boolean acceptUnchanged) throws IOException {
+        String url = endpoint.getUrl(parameter);
+        HttpCache cache = this.cache;
+        if (cache == null || !endpoint.isCacheable())
+            return HttpResult.of(stream(endpoint, url, parser));
+
+        // Fresh responses are served without asking the server
+        long now = System.currentTimeMillis();
+        HttpCache.Entry cached = cache.get(url);
+        if (cached != null && cached.isFresh(now)) {
+            HttpResult<T> hit = fromCache(cache, cached, parser, acceptUnchanged);
+            if (hit != null)
+                return hit;
+            cached = null;
+        }
+
+        HttpURLConnection connection = open(endpoint, url);
+        if (cached != null && cached.etag != null)
+            connection.setRequestProperty("If-None-Match", cached.etag);
+        if (cached != null && cached.lastModified != null)
+            connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+
+        try {
+            int responseCode = connection.getResponseCode();
+
+            // The cached body is still current, nothing was downloaded
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                HttpCache.Entry revalidated = cached.revalidated(now, maxAge(connection, now));
+                cache.update(revalidated);
+                HttpResult<T> hit = fromCache(cache, revalidated, parser, acceptUnchanged);
+                if (hit != null)
+                    return hit;
+
+                // The body was evicted since, so download it again
+                return attempt(endpoint, parameter, parser, acceptUnchanged);
+            }
+
+            // If the connection was bad, do not read data
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                discard(connection.getErrorStream());
+                throw new HttpStatusException(responseCode);
+            }
+
+            byte[] body;
+            try (InputStream in = decode(connection, connection.getInputStream())) {
+                body = readFully(in);
+            }
+
+            // Without validators, an identical hash is the only sign nothing changed
+            long contentHash = new ContentHash().add(body).get();
+            boolean unchanged = cached != null && cached.contentHash == contentHash;
+
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            if (cacheControl == null || !cacheControl.contains("no-store")) {
+                cache.put(new HttpCache.Entry(url, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                        now, maxAge(connection, now), contentHash, body.length), body);
+            }
+
+            if (unchanged && acceptUnchanged)
+                return HttpResult.unchanged();
+            return HttpResult.of(parse(parser, new ByteArrayInputStream(body)));
+        } finally {
+            // The body has been consumed and closed, so the connection is returned to the pool
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Performs an uncached GET request and decodes the response as it streams in.
+     * @param endpoint The Endpoint to call
+     * @param url The url of the request
+     * @param parser The ResponseParser used to decode the body
+     * @param <T> The type of the decoded result
+     * @return The decoded body of the response
+     * @throws IOException If the request failed, the response was not successful or the body could
+     *                     not be decoded
+     */
+    private <T> T stream(Endpoint endpoint, String url, ResponseParser<T> parser) throws IOException {
+        HttpURLConnection connection = open(endpoint, url);
+        try {
+            int responseCode = connection.getResponseCode();
+
+            // If the connection was bad, do not read data
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                discard(connection.getErrorStream());
+                throw new HttpStatusException(responseCode);
+            }
+
+            try (InputStream body = new BufferedInputStream(decode(connection, connection.getInputStream()))) {
+                T result = parse(parser, body);
+                // Drain anything the parser did not need so the connection can be reused
+                discard(body);
+                return result;
+            }
+        } finally {
+            // The body has been consumed and closed, so the connection is returned to the pool
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Answers a request from a cached response.
+     * @param cache The HttpCache holding the response
+     * @param entry The metadata of the cached response
+     * @param parser The ResponseParser used to decode the body
+     * @param acceptUnchanged True if the caller still holds the result of the last download
+     * @param <T> The type of the decoded result
+     * @return The result, or null if the body has been evicted
+     * @throws IOException If the cached body could not be decoded
+     */
+    private static <T> HttpResult<T> fromCache(HttpCache cache, HttpCache.Entry entry, ResponseParser<T> parser, boolean acceptUnchanged) throws IOException {
+        if (acceptUnchanged)
+            return HttpResult.unchanged();
+
+        try (InputStream body = cache.openBody(entry)) {
+            return HttpResult.of(parse(parser, body));
+        } catch (FileNotFoundException e) {
+            cache.remove(entry.url);
+            return null;
+        }
+    }
+
+    /**
+     * Determines how long a response may be used without revalidation from its Cache-Control
+     * max-age or Expires header. Responses without either are always revalidated.
+     * @param connection The connection of the response
+     * @param now The current time in milliseconds since epoch
+     * @return The freshness lifetime of the response in milliseconds
+     */
+    private static long maxAge(HttpURLConnection connection, long now) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            if (cacheControl.contains("no-cache") || cacheControl.contains("no-store"))
+                return 0;
+
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim();
+                if (!directive.startsWith("max-age="))
+                    continue;
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(directive.substring("max-age=".length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        long expiration = connection.getExpiration();
+        if (expiration == 0)
+            return 0;
+        long date = connection.getDate() != 0 ? connection.getDate() : now;
+        return Math.max(0, expiration - date);
+    }
+
+    /**
+     * Opens a connection for a request to the given Endpoint.
+     * @param endpoint The Endpoint to call
+     * @param url The url of the request
+     * @return The configured connection
+     * @throws IOException If the connection could not be opened
+     */
+    private HttpURLConnection open(Endpoint endpoint, String url) throws IOException {
+        int connectTimeout = endpoint.getConnectTimeout();
+        int readTimeout = endpoint.getReadTimeout();
+        synchronized (this) {
+            int[] override = timeouts.get(endpoint);
+            if (override != null) {
+                connectTimeout = override[0];
+                readTimeout = override[1];
+            }
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setRequestMethod("GET");
+        connection.setDoInput(true);
+        // Api responses are cached by the HttpCache, the process-wide HttpResponseCache is
+        // reserved for images
+        connection.setUseCaches(false);
+        // Setting this explicitly means the body must be decompressed by decode()
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        return connection;
+    }
+
+    /**
+     * Wraps the body of a response in a GZIPInputStream if the server compressed it.
+     * @param connection The connection the body belongs to
+     * @param body The raw body of the response
+     * @return A stream of the decompressed body
+     * @throws IOException If the gzip header could not be read
+     */
+    private static InputStream decode(HttpURLConnection connection, InputStream body) throws IOException {
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+            return new GZIPInputStream(body);
+        return body;
+    }
+
+    /**
+     * Decodes a body, reporting every kind of malformed content as a MalformedResponseException.
+     * @param parser The ResponseParser used to decode the body
+     * @param body The decompressed body
+     * @param <T> The type of the decoded result
+     * @return The decoded body
+     * @throws IOException If the body could not be read or is malformed
+     */
+    private static <T> T parse(ResponseParser<T> parser, InputStream body) throws IOException {
+        try {
+            return parser.parse(body);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            // JsonReader reports unexpected tokens with IllegalStateException
+            throw new MalformedResponseException(e);
+        }
+    }
+
+    /**
+     * @param e The error of a failed attempt
+     * @return True if another attempt may succeed
+     */
+    private static boolean isTransient(IOException e) {
+        if (e instanceof HttpStatusException)
+            return ((HttpStatusException) e).isTransient();
+        if (e instanceof MalformedResponseException)
+            return false;
+        // Interrupted by a cancellation rather than a timeout
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))
+            return false;
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Picks the delay before a retry, uniformly at random up to an exponentially growing cap, so
+     * clients failing together do not retry together.
+     * @param attempt The number of the failed attempt, starting at 1
+     * @return The delay in milliseconds
+     */
+    private static long backoff(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        return (long) (Math.random() * (cap + 1));
+    }
+
+    /**
+     * @param delayMs How long to wait before a retry, in milliseconds
+     * @throws InterruptedIOException If the thread was interrupted while waiting
+     */
+    private static void sleep(long delayMs) throws InterruptedIOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * @param future A finished request
+     * @param <T> The type of the decoded result
+     * @return The result of the request
+     * @throws IOException If the request failed
+     */
+    private static <T> HttpResult<T> result(Future<HttpResult<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Reads a response body to its end.
+     * @param body The body to read
+     * @return The bytes of the body
+     * @throws IOException If the body could not be read
+     */
+    private static byte[] readFully(InputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1)
+            bytes.write(buffer, 0, read);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads and closes a response body so its connection can be reused.
+     * @param body The body to discard. This value may be null.
+     */
+    private static void discard(InputStream body) {
+        if (body == null)
+            return;
+
+        try (InputStream is = body) {
+            byte[] buffer = new byte[1024];
+            while (is.read(buffer) != -1) { }
+        } catch (IOException ignored) { }
+    }
+
+    /**
+     * A single attempt of a request.
+     * @param <T> The type of the decoded result
+     */
+    private interface Request<T> {
+        HttpResult<T> run() throws IOException;
+    }
+}
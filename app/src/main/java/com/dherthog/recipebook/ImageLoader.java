@@ -0,0 +1,199 @@
+package com.dherthog.recipebook;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.net.http.HttpResponseCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+import com.squareup.picasso.UrlConnectionDownloader;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The application's single image pipeline. Wraps a Picasso instance with an explicitly sized
+ * memory LRU and a byte-bounded disk cache, requests the smallest TMDB image that covers the
+ * target View, and decodes list thumbnails without an alpha channel.
+ */
+final class ImageLoader {
+
+    // The share of the application's memory class given to decoded bitmaps
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+    // The number of bytes of downloaded images kept on disk
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    // The edge length in pixels of TMDB's /preview meal thumbnails
+    private static final int PREVIEW_SIZE = 250;
+    // Meal images are the only TMDB images that have a /preview variant
+    private static final String MEAL_IMAGE_PATH = "/images/media/meals/";
+
+    private static ImageLoader instance;
+
+    private final Picasso picasso;
+    private final int heroSize; // The edge length of the hero ImageView in pixels
+    private final int listItemSize; // The edge length of a list_item's ImageView in pixels
+
+    /**
+     * @param context Any Context of the application
+     * @return The shared ImageLoader
+     */
+    static synchronized ImageLoader getInstance(Context context) {
+        if (instance == null)
+            instance = new ImageLoader(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * @param context The application Context
+     */
+    private ImageLoader(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryCacheBytes = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVISOR;
+
+        heroSize = context.getResources().getDimensionPixelSize(R.dimen.hero_image_size);
+        listItemSize = context.getResources().getDimensionPixelSize(R.dimen.list_item_image_size);
+        picasso = new Picasso.Builder(context)
+                .memoryCache(new LruCache(memoryCacheBytes))
+                .downloader(new DiskCachingDownloader(context))
+                .build();
+    }
+
+    /**
+     * Loads a meal thumbnail into a list row, decoded at the row's pixel size as RGB_565.
+     * @param target The ImageView of the row
+     * @param url The url of the meal's image
+     */
+    void loadThumbnail(ImageView target, String url) {
+        request(target, url).config(Bitmap.Config.RGB_565).into(target);
+    }
+
+    /**
+     * Loads a category image into a list row, decoded at the row's pixel size. Category images
+     * are transparent PNGs, so they keep their alpha channel.
+     * @param target The ImageView of the row
+     * @param url The url of the category's image
+     */
+    void loadCategory(ImageView target, String url) {
+        request(target, url).into(target);
+    }
+
+    /**
+     * Loads the hero image of a Recipe at full quality.
+     * @param target The ImageView displaying the hero image
+     * @param url The url of the meal's image
+     */
+    void loadHero(ImageView target, String url) {
+        request(target, url).into(target);
+    }
+
+    /**
+     * Decodes a meal thumbnail into the memory cache with the same request loadThumbnail makes for
+     * a list_item.
+     * @param url The url of the meal's image
+     * @param tag Identifies the prefetch for cancelPrefetch
+     */
+    void prefetchThumbnail(String url, Object tag) {
+        request(url, listItemSize, listItemSize).config(Bitmap.Config.RGB_565).tag(tag).fetch();
+    }
+
+    /**
+     * Decodes a category image into the memory cache with the same request loadCategory makes for
+     * a list_item.
+     * @param url The url of the category's image
+     * @param tag Identifies the prefetch for cancelPrefetch
+     */
+    void prefetchCategory(String url, Object tag) {
+        request(url, listItemSize, listItemSize).tag(tag).fetch();
+    }
+
+    /**
+     * Cancels the prefetches with the given tag that have not finished.
+     * @param tag The tag passed to the prefetch
+     */
+    void cancelPrefetch(Object tag) {
+        picasso.cancelTag(tag);
+    }
+
+    /**
+     * Downloads and decodes a hero image into the memory cache with the same request loadHero
+     * makes, so displaying it later needs no download or decode.
+     * @param url The url of the meal's image
+     */
+    void prefetchHero(String url) {
+        if (url != null)
+            request(url, heroSize, heroSize).fetch();
+    }
+
+    /**
+     * Builds a request sized to the target's layout size, or to its measured size if the layout
+     * size is not fixed.
+     * @param target The ImageView the image is loaded into
+     * @param url The url of the image
+     * @return The request
+     */
+    private RequestCreator request(ImageView target, String url) {
+        ViewGroup.LayoutParams params = target.getLayoutParams();
+        if (params == null || params.width <= 0 || params.height <= 0)
+            return picasso.load(url).fit().centerInside();
+
+        return request(url, params.width, params.height);
+    }
+
+    /**
+     * Builds a request for the smallest suitable source, decoded at the given pixel size.
+     * @param url The url of the image
+     * @param width The width of the target in pixels
+     * @param height The height of the target in pixels
+     * @return The request
+     */
+    private RequestCreator request(String url, int width, int height) {
+        return picasso.load(sourceFor(url, Math.max(width, height)))
+                .resize(width, height)
+                .centerInside()
+                .onlyScaleDown();
+    }
+
+    /**
+     * Picks the smallest TMDB image variant that covers the given size.
+     * @param url The url of the full size image
+     * @param targetSize The largest edge of the target in pixels
+     * @return The url of the image to download
+     */
+    static String sourceFor(String url, int targetSize) {
+        if (url != null && targetSize <= PREVIEW_SIZE && url.contains(MEAL_IMAGE_PATH))
+            return url + "/preview";
+        return url;
+    }
+
+    /**
+     * A UrlConnectionDownloader whose HTTP disk cache is limited to DISK_CACHE_BYTES rather than
+     * Picasso's default share of the disk.
+     */
+    private static class DiskCachingDownloader extends UrlConnectionDownloader {
+
+        private final File cacheDirectory;
+
+        DiskCachingDownloader(Context context) {
+            super(context);
+            cacheDirectory = new File(context.getCacheDir(), "image-cache");
+        }
+
+        /**
+         * Installs the disk cache before Picasso installs its default one. Runs on Picasso's
+         * download threads, never the UI thread.
+         */
+        @Override
+        public Response load(Uri uri, int networkPolicy) throws IOException {
+            synchronized (DiskCachingDownloader.class) {
+                if (HttpResponseCache.getInstalled() == null)
+                    HttpResponseCache.install(cacheDirectory, DISK_CACHE_BYTES);
+            }
+            return super.load(uri, networkPolicy);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.dherthog.recipebook;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decodes the images of the rows just beyond the visible part of a list into the memory cache
+ * while the list scrolls, so rows never appear blank. Prefetches for rows that leave the prefetch
+ * window, e.g. after the scroll direction changes, are cancelled.
+ */
+class ImagePrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * Provides the image urls of a list's rows.
+     */
+    interface ImageSource {
+        int getItemCount();
+
+        /**
+         * @param position The position of a row
+         * @return The url of the row's image. This value may be null.
+         */
+        String getImageUrl(int position);
+    }
+
+    private final ImageLoader imageLoader;
+    private final ImageSource imageSource;
+    private final boolean thumbnails; // True for meal thumbnails, false for category images
+    private final int rowsAhead; // The number of rows prefetched past the visible rows
+
+    // Prefetch tags of the rows in the current window, by position
+    private final Map<Integer, Object> prefetched = new HashMap<>();
+
+    /**
+     * @param imageLoader The ImageLoader the rows are displayed with
+     * @param imageSource The source of the rows' image urls
+     * @param thumbnails True if the rows display meal thumbnails, false for category images
+     * @param rowsAhead The number of rows to prefetch past the visible rows
+     */
+    ImagePrefetcher(ImageLoader imageLoader, ImageSource imageSource, boolean thumbnails, int rowsAhead) {
+        this.imageLoader = imageLoader;
+        this.imageSource = imageSource;
+        this.thumbnails = thumbnails;
+        this.rowsAhead = rowsAhead;
+    }
+
+    /**
+     * Moves the prefetch window in the direction of the scroll.
+     */
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null)
+            return;
+
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION)
+            return;
+
+        // Prefetch below the visible rows unless scrolling up
+        if (dy >= 0)
+            moveWindow(last + 1, last + rowsAhead);
+        else
+            moveWindow(first - rowsAhead, first - 1);
+    }
+
+    /**
+     * Cancels every outstanding prefetch, e.g. when the list is destroyed.
+     */
+    void cancelAll() {
+        for (Object tag : prefetched.values())
+            imageLoader.cancelPrefetch(tag);
+        prefetched.clear();
+    }
+
+    /**
+     * Prefetches the rows of a new window and cancels the rows that left it.
+     * @param start The first position of the window
+     * @param end The last position of the window
+     */
+    private void moveWindow(int start, int end) {
+        start = Math.max(start, 0);
+        end = Math.min(end, imageSource.getItemCount() - 1);
+
+        Iterator<Map.Entry<Integer, Object>> iterator = prefetched.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Object> entry = iterator.next();
+            if (entry.getKey() < start || entry.getKey() > end) {
+                imageLoader.cancelPrefetch(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        for (int position = start; position <= end; position++) {
+            if (prefetched.containsKey(position))
+                continue;
+
+            String url = imageSource.getImageUrl(position);
+            if (url == null)
+                continue;
+
+            Object tag = new Object();
+            prefetched.put(position, tag);
+            if (thumbnails)
+                imageLoader.prefetchThumbnail(url, tag);
+            else
+                imageLoader.prefetchCategory(url, tag);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dherthog.recipebook;
+
+/**
+ * An ingredient of a Recipe along with its measure.
+ */
+public class Ingredient {
+
+    private final String name;
+    private final String measure; // e.g. "1 tbs". This value may be null.
+
+    /**
+     * @param name The name of the ingredient in the TMDB
+     * @param measure The measure of the ingredient in the TMDB. This value may be null.
+     */
+    public Ingredient(String name, String measure) {
+        this.name = name;
+        this.measure = measure;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMeasure() {
+        return measure;
+    }
+
+    /**
+     * @return The ingredient as displayed, e.g. "1 tbs Olive Oil"
+     */
+    @Override
+    public String toString() {
+        if (measure == null || measure.trim().isEmpty())
+            return name;
+        return measure.trim() + " " + name;
+    }
+}
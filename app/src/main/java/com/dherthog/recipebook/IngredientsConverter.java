@@ -0,0 +1,87 @@
+package com.dherthog.recipebook;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.room.TypeConverter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores a Recipe's ingredients in a single column as a JSON array of [name, measure] pairs.
+ */
+class IngredientsConverter {
+
+    private IngredientsConverter() { }
+
+    /**
+     * @param ingredients The ingredients to store. This value may be null.
+     * @return The JSON stored in the column, or null if there are no stored ingredients
+     */
+    @TypeConverter
+    static String fromIngredients(List<Ingredient> ingredients) {
+        if (ingredients == null)
+            return null;
+
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginArray();
+            for (Ingredient ingredient : ingredients) {
+                writer.beginArray();
+                writer.value(ingredient.getName());
+                writer.value(ingredient.getMeasure());
+                writer.endArray();
+            }
+            writer.endArray();
+        } catch (IOException e) {
+            // A StringWriter never fails
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * @param json The JSON stored in the column. This value may be null.
+     * @return The stored ingredients, or null if none were stored
+     */
+    @TypeConverter
+    static List<Ingredient> toIngredients(String json) {
+        if (json == null)
+            return null;
+
+        List<Ingredient> ingredients = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginArray();
+                String name = nextString(reader);
+                String measure = nextString(reader);
+                reader.endArray();
+                ingredients.add(new Ingredient(name, measure));
+            }
+            reader.endArray();
+        } catch (IOException e) {
+            // Only written by fromIngredients, so the column is never malformed
+            throw new IllegalStateException(e);
+        }
+        return ingredients;
+    }
+
+    /**
+     * @param reader The JsonReader positioned at a string or null value
+     * @return The string value, or null if the value is null
+     * @throws IOException If the value could not be read
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.dherthog.recipebook;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the instruction text of a Recipe into steps and lays them out ahead of display. TheMealDB
+ * separates steps with line breaks, and some authors number them or add "STEP 1" headings, which
+ * are dropped since the steps are numbered when displayed.
+ */
+final class InstructionSteps {
+
+    // Leading numbering of a step, e.g. "1.", "2)", "STEP 3" or "Step 4:", but not "1.5 cups"
+    private static final Pattern NUMBERING = Pattern.compile("^(?:step\\s*\\d+\\s*[.):-]?|\\d+\\s*[.)](?!\\d))\\s*", Pattern.CASE_INSENSITIVE);
+
+    private InstructionSteps() {
+    }
+
+    /**
+     * @param instructions The instruction text of a Recipe. This value may be null.
+     * @return The steps in order, without their numbering
+     */
+    static List<String> split(String instructions) {
+        List<String> steps = new ArrayList<>();
+        if (instructions == null)
+            return steps;
+
+        for (String line : instructions.split("\\r?\\n|\\r")) {
+            String step = NUMBERING.matcher(line.trim()).replaceFirst("").trim();
+            // Headings like "STEP 1" are left empty
+            if (!step.isEmpty())
+                steps.add(step);
+        }
+        return steps;
+    }
+
+    /**
+     * Measures the glyphs of every step, so displaying them does not. Must not be called on the
+     * UI thread.
+     * @param steps The steps to lay out
+     * @param params The text metrics of the TextView displaying a step
+     * @return The steps as PrecomputedTextCompat, in order
+     */
+    static List<CharSequence> precompute(List<String> steps, PrecomputedTextCompat.Params params) {
+        List<CharSequence> precomputed = new ArrayList<>(steps.size());
+        for (String step : steps)
+            precomputed.add(PrecomputedTextCompat.create(step, params));
+        return precomputed;
+    }
+}
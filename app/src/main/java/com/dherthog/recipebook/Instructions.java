@@ -1,5 +1,7 @@
 package com.dherthog.recipebook;
 
+import java.util.List;
+
 /**
  * An Object to store instructions for a Recipe
  */
@@ -9,6 +11,7 @@ public class Instructions extends Recipe {
     private final int id;
     // imageUrl: the url for the Recipe's image
     private final String name, category, area, imageUrl, instructions;
+    private final List<Ingredient> ingredients; // In the order TMDB lists them. This value may be null.
 
     /**
      * @param id The ID of the Recipe in the TMDB
@@ -17,8 +20,10 @@ public class Instructions extends Recipe {
      * @param area The area of the Recipe in the TMDB
      * @param imageUrl The imageUrl of the Recipe in the TMDB
      * @param instructions The instructions of the Recipe in the TMDB
+     * @param ingredients The ingredients of the Recipe in the TMDB. This value may be null if they
+     *                    were not stored.
      */
-    public Instructions(int id, String name, String category, String area, String imageUrl, String instructions) {
+    public Instructions(int id, String name, String category, String area, String imageUrl, String instructions, List<Ingredient> ingredients) {
         super(id, name, imageUrl);
         this.id = id;
         this.name = name;
@@ -26,6 +31,7 @@ public class Instructions extends Recipe {
         this.area = area;
         this.imageUrl = imageUrl;
         this.instructions = instructions;
+        this.ingredients = ingredients;
     }
 
     public int getId() {
@@ -51,4 +57,20 @@ public class Instructions extends Recipe {
     public String getInstructions() {
         return instructions;
     }
+
+    public List<Ingredient> getIngredients() {
+        return ingredients;
+    }
+
+    /**
+     * @return A hash of every displayed field, equal for Instructions with the same content
+     */
+    long contentHash() {
+        ContentHash hash = new ContentHash().add(name).add(category).add(area).add(imageUrl).add(instructions);
+        if (ingredients != null) {
+            for (Ingredient ingredient : ingredients)
+                hash.add(ingredient.getName()).add(ingredient.getMeasure());
+        }
+        return hash.get();
+    }
 }
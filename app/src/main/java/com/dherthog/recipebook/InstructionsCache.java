@@ -0,0 +1,58 @@
+package com.dherthog.recipebook;
+
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * A size-bounded in-memory LRU cache of parsed Instructions keyed by Recipe id. Entries are
+ * weighed by their text so a few very long instruction bodies cannot crowd out the budget
+ * unnoticed. Hit, miss and eviction counters are provided by LruCache.
+ */
+class InstructionsCache extends LruCache<Integer, Instructions> {
+
+    // Approximate fixed cost of an Instructions object and its strings, in bytes
+    private static final int ENTRY_OVERHEAD = 256;
+
+    /**
+     * @param maxBytes The approximate number of bytes the cached Instructions may occupy
+     */
+    InstructionsCache(int maxBytes) {
+        super(maxBytes);
+    }
+
+    /**
+     * Weighs Instructions by the characters they hold, at two bytes per char.
+     * @param id The id of the Recipe
+     * @param instructions The cached Instructions
+     * @return The approximate size of the Instructions in bytes
+     */
+    @Override
+    protected int sizeOf(Integer id, Instructions instructions) {
+        return ENTRY_OVERHEAD + 2 * (length(instructions.getName()) + length(instructions.getCategory())
+                + length(instructions.getArea()) + length(instructions.getImageUrl())
+                + length(instructions.getInstructions()) + length(instructions.getIngredients()));
+    }
+
+    /**
+     * @param ingredients A list of ingredients. This value may be null.
+     * @return The number of characters of the ingredients' names and measures
+     */
+    private static int length(List<Ingredient> ingredients) {
+        if (ingredients == null)
+            return 0;
+
+        int length = 0;
+        for (Ingredient ingredient : ingredients)
+            length += length(ingredient.getName()) + length(ingredient.getMeasure());
+        return length;
+    }
+
+    /**
+     * @param s A String. This value may be null.
+     * @return The length of s, or 0 if it is null
+     */
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
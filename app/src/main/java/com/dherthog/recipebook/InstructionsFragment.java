@@ -2,7 +2,6 @@ package com.dherthog.recipebook;
 
 import android.content.Context;
 import android.os.Bundle;
-import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,36 +9,87 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.squareup.picasso.Picasso;
+import java.util.List;
 
 /**
- * A Fragment to display Recipe instructions.
+ * A Fragment to display Recipe instructions. The Instructions are read from the
+ * RecipeBookViewModel by the Recipe id in the Fragment's arguments, so the Fragment can be
+ * recreated by the framework. The instruction text is displayed as a list of steps laid out off
+ * the UI thread, so long instructions don't stall opening the Fragment.
  */
 public class InstructionsFragment extends Fragment {
 
-    private final FavoriteCommunicator favoriteCommunicator;
-    private final Instructions instructions;
+    private static final String ARG_ID = "id";
+    private static final String ARG_FAVORITE = "favorite";
+
+    private FavoriteCommunicator favoriteCommunicator;
     private boolean isFavorite; // If the instructions are for a favorite Recipe
+    private View view; // The root View of the Fragment
     private ImageButton ibFavorite;
+    private RecipeBookViewModel viewModel;
+    private RecyclerView rvSteps;
+    private StepListAdapter stepAdapter;
+    private LiveData<List<CharSequence>> steps; // The steps of the displayed Instructions
+
+    /**
+     * Creates an InstructionsFragment for the Instructions of a Recipe.
+     * @param id The id of the Recipe
+     * @param isFavorite True if the Recipe is a favorite
+     * @return The InstructionsFragment
+     */
+    public static InstructionsFragment newInstance(int id, boolean isFavorite) {
+        Bundle args = new Bundle();
+        args.putInt(ARG_ID, id);
+        args.putBoolean(ARG_FAVORITE, isFavorite);
+        InstructionsFragment fragment = new InstructionsFragment();
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    /**
+     * Gets the observer for Recipe favoriting from the Activity.
+     * @param context The Activity the Fragment is attached to
+     */
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        favoriteCommunicator = (FavoriteCommunicator) context;
+    }
 
     /**
-     * Constructor for passing an ActivityCommunicator, the application context, and recipes to
-     * display.
-     * @param instructions A Instructions to display in the fragment
-     * @param isFavorite True if the instructions are for a favorite Recipe
-     * @param favoriteCommunicator The observer for Recipe favoriting
+     * Restores whether the Recipe is a favorite, which may have been toggled since the Fragment
+     * was created.
+     * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous
+     *                           saved state as given here
      */
-    public InstructionsFragment(Instructions instructions, boolean isFavorite, FavoriteCommunicator favoriteCommunicator) {
-        this.favoriteCommunicator = favoriteCommunicator;
-        this.instructions = instructions;
-        this.isFavorite = isFavorite;
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        Bundle state = savedInstanceState != null ? savedInstanceState : requireArguments();
+        isFavorite = state.getBoolean(ARG_FAVORITE);
+    }
+
+    /**
+     * Saves whether the Recipe is a favorite.
+     * @param outState The Bundle to save the state in
+     */
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(ARG_FAVORITE, isFavorite);
     }
 
     /**
      * Called to have the fragment instantiate its user interface view. Instantiates root View and
-     * all information in the Fragment's Instructions.
+     * displays the Instructions once the RecipeBookViewModel has them.
      * @param inflater The LayoutInflater object that can be used to inflate any views in the
      *                 fragment
      * @param parent If non-null, this is the parent view that the fragment's UI should be attached
@@ -51,14 +101,31 @@ public class InstructionsFragment extends Fragment {
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState) {
         // Defines the xml file for the fragment
-        // The root View of the Fragment
-        View view = inflater.inflate(R.layout.fragment_instructions, parent, false);
+        view = inflater.inflate(R.layout.fragment_instructions, parent, false);
+
+        // Only the visible steps are bound
+        stepAdapter = new StepListAdapter();
+        rvSteps = view.findViewById(R.id.rv_instruction_steps);
+        rvSteps.setLayoutManager(new LinearLayoutManager(view.getContext()));
+        rvSteps.setHasFixedSize(true);
+        rvSteps.setAdapter(stepAdapter);
+
+        viewModel = new ViewModelProvider(requireActivity()).get(RecipeBookViewModel.class);
+        viewModel.getInstructions(requireArguments().getInt(ARG_ID)).observe(getViewLifecycleOwner(), this::displayInstructions);
+
+        return view;
+    }
 
+    /**
+     * Populates the Views with the Instructions.
+     * @param instructions The Instructions to display
+     */
+    private void displayInstructions(Instructions instructions) {
         // Get references for necessary Views
         TextView tvName = view.findViewById(R.id.tv_recipe_name);
         TextView tvCategory = view.findViewById(R.id.tv_recipe_category);
         TextView tvArea = view.findViewById(R.id.tv_recipe_area);
-        TextView tvInstructions = view.findViewById(R.id.tv_recipe_instructions);
+        TextView tvIngredients = view.findViewById(R.id.tv_recipe_ingredients);
         ImageView ivImage = view.findViewById(R.id.iv_recipe_image);
         ibFavorite = view.findViewById(R.id.ib_favorite);
 
@@ -69,20 +136,70 @@ public class InstructionsFragment extends Fragment {
         tvName.setText(instructions.getName());
         tvCategory.setText(instructions.getCategory());
         tvArea.setText(instructions.getArea());
-        tvInstructions.setText(instructions.getInstructions());
-        tvInstructions.setMovementMethod(new ScrollingMovementMethod());
+        tvIngredients.setText(formatIngredients(instructions.getIngredients()));
+        displaySteps(instructions);
 
-        // Sets listener for user highlighting the Recipe
+        // Sets listener for user highlighting the Recipe. The star flips right away and is then
+        // set from the committed write.
         ibFavorite.setOnClickListener(v -> {
-            favoriteCommunicator.recipeFavorited(instructions);
-            isFavorite = !isFavorite;
-            setFavoriteButtonImage();
+            boolean wasFavorite = isFavorite;
+            favoriteCommunicator.recipeFavorited(instructions, new FavoriteCommunicator.Listener() {
+                @Override
+                public void favoriteCommitted(boolean favorite) {
+                    favoriteChanged(favorite);
+                }
+
+                @Override
+                public void favoriteFailed() {
+                    favoriteChanged(wasFavorite);
+                }
+            });
+            favoriteChanged(!wasFavorite);
         });
 
         // Load image for the intructions
-        Picasso.with(requireContext()).load(instructions.getImageUrl()).fit().into(ivImage);
+        ImageLoader.getInstance(requireContext()).loadHero(ivImage, instructions.getImageUrl());
+    }
 
-        return view;
+    /**
+     * Displays the steps of the Instructions once they are laid out. They usually were while the
+     * rewarded ad played.
+     * @param instructions The Instructions whose steps to display
+     */
+    private void displaySteps(Instructions instructions) {
+        // Updated Instructions replace the steps still being laid out
+        if (steps != null)
+            steps.removeObservers(getViewLifecycleOwner());
+
+        steps = viewModel.getSteps(instructions, StepListAdapter.getTextParams(rvSteps));
+        steps.observe(getViewLifecycleOwner(), stepAdapter::setSteps);
+    }
+
+    /**
+     * @param ingredients The ingredients of the Recipe. This value may be null.
+     * @return The ingredients as a comma separated list, e.g. "1 tbs Olive Oil, 2 Eggs"
+     */
+    private static String formatIngredients(List<Ingredient> ingredients) {
+        if (ingredients == null || ingredients.isEmpty())
+            return "-";
+
+        StringBuilder text = new StringBuilder();
+        for (Ingredient ingredient : ingredients) {
+            if (text.length() > 0)
+                text.append(", ");
+            text.append(ingredient);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Records whether the Recipe is a favorite and updates the star if it is displayed.
+     * @param favorite True if the Recipe is a favorite
+     */
+    private void favoriteChanged(boolean favorite) {
+        isFavorite = favorite;
+        if (getView() != null)
+            setFavoriteButtonImage();
     }
 
     /**
@@ -0,0 +1,155 @@
+package com.dherthog.recipebook;
+
+/**
+ * Coordinates a rewarded ad with the loading of the Instructions it unlocks, so the two run at the
+ * same time instead of one after the other. The Instructions are released once both the ad is
+ * finished and they have loaded, whichever happens last. Must only be used on the UI thread.
+ */
+class InstructionsGate {
+
+    /**
+     * The states of the gate. The ad and the Instructions each move the gate towards READY.
+     */
+    enum State {
+        WAITING_FOR_BOTH, // The ad is showing and the Instructions are loading
+        WAITING_FOR_AD, // The Instructions have loaded, the ad is still showing
+        WAITING_FOR_INSTRUCTIONS, // The ad is finished, the Instructions are still loading
+        READY, // Both are done and the Instructions were released
+        FAILED, // The Instructions could not be loaded
+        CANCELLED // The ad was closed before the reward, or the user moved on
+    }
+
+    /**
+     * Receives the outcome of the gate on the UI thread.
+     */
+    interface Listener {
+
+        /**
+         * Called once the ad is finished and the Instructions have loaded.
+         * @param instructions The loaded Instructions
+         */
+        void onReady(Instructions instructions);
+
+        /**
+         * Called once the ad is finished if the Instructions could not be loaded.
+         * @param error The reason the Instructions could not be loaded
+         */
+        void onFailed(LoadResult.Error error);
+    }
+
+    private final Listener listener;
+    private State state = State.WAITING_FOR_BOTH;
+    private Instructions instructions; // Held until the ad is finished
+    private LoadResult.Error error; // Why the load failed, null unless it failed
+    private boolean rewardEarned;
+
+    /**
+     * @param listener Receives the outcome of the gate
+     */
+    InstructionsGate(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The current State of the gate
+     */
+    State getState() {
+        return state;
+    }
+
+    /**
+     * @return True until the gate has released its outcome or was cancelled
+     */
+    boolean isPending() {
+        return state == State.WAITING_FOR_BOTH || state == State.WAITING_FOR_AD || state == State.WAITING_FOR_INSTRUCTIONS;
+    }
+
+    /**
+     * @return True if the Instructions could not be loaded, e.g. to skip an ad shown for nothing
+     */
+    boolean hasFailed() {
+        return error != null;
+    }
+
+    /**
+     * Records that the Instructions have loaded.
+     * @param instructions The loaded Instructions
+     */
+    void instructionsLoaded(Instructions instructions) {
+        if (state == State.WAITING_FOR_BOTH) {
+            this.instructions = instructions;
+            state = State.WAITING_FOR_AD;
+        } else if (state == State.WAITING_FOR_INSTRUCTIONS) {
+            state = State.READY;
+            listener.onReady(instructions);
+        }
+    }
+
+    /**
+     * Records that the Instructions could not be loaded.
+     * @param error The reason the Instructions could not be loaded
+     */
+    void instructionsFailed(LoadResult.Error error) {
+        if (state == State.WAITING_FOR_BOTH) {
+            this.error = error;
+            state = State.WAITING_FOR_AD;
+        } else if (state == State.WAITING_FOR_INSTRUCTIONS) {
+            this.error = error;
+            state = State.FAILED;
+            listener.onFailed(error);
+        }
+    }
+
+    /**
+     * Records that the user earned the ad's reward. The gate still waits for the ad to close.
+     */
+    void rewardEarned() {
+        rewardEarned = true;
+    }
+
+    /**
+     * Records that the ad was closed. Without the reward the Instructions are not released.
+     */
+    void adDismissed() {
+        if (rewardEarned)
+            adFinished();
+        else
+            cancel();
+    }
+
+    /**
+     * Records that no ad is shown, e.g. because none was ready or it failed to show.
+     */
+    void adSkipped() {
+        adFinished();
+    }
+
+    /**
+     * Stops the gate from releasing anything, e.g. when another Recipe is selected.
+     */
+    void cancel() {
+        if (isPending()) {
+            state = State.CANCELLED;
+            instructions = null;
+        }
+    }
+
+    /**
+     * Moves the gate past the ad, releasing the outcome of the load if it is known.
+     */
+    private void adFinished() {
+        if (state == State.WAITING_FOR_BOTH) {
+            state = State.WAITING_FOR_INSTRUCTIONS;
+        } else if (state == State.WAITING_FOR_AD) {
+            if (error != null) {
+                state = State.FAILED;
+                listener.onFailed(error);
+            } else {
+                state = State.READY;
+                Instructions ready = instructions;
+                instructions = null;
+                listener.onReady(ready);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Speculatively loads the Instructions and hero images of visible Recipes at low priority, so
+ * selecting one of them does not wait on the network. Limited to a few concurrent downloads and a
+ * byte budget per displayed list.
+ */
+class InstructionsPrefetcher {
+
+    // The maximum number of Instructions downloaded at once
+    private static final int MAX_CONCURRENT = 2;
+    // The maximum number of Recipes prefetched per call, starting from the top of the list
+    private static final int MAX_RECIPES = 4;
+    // The approximate number of bytes of Instructions prefetched per displayed list
+    private static final int BYTE_BUDGET = 64 * 1024;
+
+    private final Context context;
+    private final RecipeRepository recipeRepository;
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT, runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "InstructionsPrefetcher"));
+
+    // Queued or running prefetches of the displayed list
+    private final List<Future<?>> pending = new ArrayList<>();
+    // Ids of the Recipes already prefetched for the displayed list
+    private final Set<Integer> requested = new HashSet<>();
+    // Bytes of Instructions prefetched for the displayed list
+    private final AtomicInteger bytesUsed = new AtomicInteger();
+
+    /**
+     * @param context Any Context of the application
+     * @param recipeRepository The repository that caches prefetched Instructions
+     */
+    InstructionsPrefetcher(Context context, RecipeRepository recipeRepository) {
+        this.context = context.getApplicationContext();
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Queues prefetches for the given Recipes that have not been prefetched yet. Must be called on
+     * the UI thread.
+     * @param recipes The visible Recipes, in display order
+     */
+    void prefetch(List<Recipe> recipes) {
+        // Forget prefetches that have finished
+        Iterator<Future<?>> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone())
+                iterator.remove();
+        }
+
+        int queued = 0;
+        for (Recipe recipe : recipes) {
+            if (queued == MAX_RECIPES || bytesUsed.get() >= BYTE_BUDGET)
+                return;
+            if (!requested.add(recipe.getId()))
+                continue;
+
+            pending.add(executor.submit(() -> load(recipe.getId())));
+            queued++;
+        }
+    }
+
+    /**
+     * Drops all queued prefetches and resets the budget. Prefetches already downloading are left
+     * to finish since a selection may be waiting on them. Must be called on the UI thread.
+     */
+    void cancel() {
+        for (Future<?> future : pending)
+            future.cancel(false);
+        pending.clear();
+        requested.clear();
+        bytesUsed.set(0);
+    }
+
+    /**
+     * Drops all queued prefetches and stops the prefetcher's threads once running prefetches
+     * finish. Must be called on the UI thread.
+     */
+    void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    /**
+     * Loads the Instructions of a Recipe into the repository's caches and warms its hero image.
+     * @param id The id of the Recipe
+     */
+    private void load(int id) {
+        if (bytesUsed.get() >= BYTE_BUDGET)
+            return;
+
+        LoadResult<Instructions> result = recipeRepository.getInstructions(id);
+        if (!result.isSuccess())
+            return;
+
+        Instructions instructions = result.getValue();
+        String text = instructions.getInstructions();
+        bytesUsed.addAndGet(2 * (text == null ? 0 : text.length()));
+
+        ImageLoader.getInstance(context).prefetchHero(instructions.getImageUrl());
+    }
+}
@@ -0,0 +1,149 @@
+package com.dherthog.recipebook;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive ints using open addressing with linear probing. Lookups, insertions and
+ * removals are O(1) on average and never allocate, unlike a Set<Integer>. Not thread-safe.
+ */
+class IntHashSet {
+
+    // Marks an empty slot. 0 is never a valid TMDB meal id, but is still supported via hasZero.
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] slots;
+    private int size; // The number of non-zero elements
+    private boolean hasZero;
+
+    /**
+     * @param expectedSize The number of elements the set should hold without growing
+     */
+    IntHashSet(int expectedSize) {
+        slots = new int[capacityFor(expectedSize)];
+    }
+
+    /**
+     * @param value The int to look up
+     * @return True if the set contains value
+     */
+    boolean contains(int value) {
+        if (value == EMPTY)
+            return hasZero;
+
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param value The int to add
+     * @return True if the set did not already contain value
+     */
+    boolean add(int value) {
+        if (value == EMPTY) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == value)
+                return false;
+        }
+        slots[i] = value;
+
+        if (++size > slots.length * LOAD_FACTOR)
+            rehash(slots.length * 2);
+        return true;
+    }
+
+    /**
+     * @param value The int to remove
+     * @return True if the set contained value
+     */
+    boolean remove(int value) {
+        if (value == EMPTY) {
+            boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        for (; slots[i] != value; i = (i + 1) & mask) {
+            if (slots[i] == EMPTY)
+                return false;
+        }
+
+        // Shift later elements of the probe sequence back so lookups never stop early
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(slots[j]) & mask;
+            // Move slots[j] into the gap unless its home lies cyclically in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every element.
+     */
+    void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        hasZero = false;
+    }
+
+    /**
+     * @return The number of elements in the set
+     */
+    int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * Moves every element into a table of the given capacity.
+     * @param capacity The new capacity, a power of two
+     */
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        size = 0;
+        for (int value : old) {
+            if (value != EMPTY)
+                add(value);
+        }
+    }
+
+    /**
+     * @param expectedSize The number of elements to hold
+     * @return The smallest power of two capacity holding expectedSize elements under LOAD_FACTOR
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Spreads the bits of sequential ids across the table.
+     * @param value The int to hash
+     * @return The mixed hash
+     */
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,42 @@
+package com.dherthog.recipebook;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A ViewHolder for list_item, caching the references to its Views so binding never calls
+ * findViewById.
+ */
+class ListItemViewHolder extends RecyclerView.ViewHolder {
+
+    // The view type of list_item, shared by every list so their ViewHolders can be pooled together.
+    // Any list's adapter may bind a holder, so adapters set list-specific state when binding.
+    static final int VIEW_TYPE = R.layout.list_item;
+
+    final TextView tvTitle;
+    final ImageView ivImage;
+
+    /**
+     * @param itemView An inflated list_item
+     */
+    private ListItemViewHolder(@NonNull View itemView) {
+        super(itemView);
+        tvTitle = itemView.findViewById(R.id.tv_item_title);
+        ivImage = itemView.findViewById(R.id.iv_item);
+    }
+
+    /**
+     * Inflates a list_item and creates its ViewHolder.
+     * @param parent The RecyclerView the item will be displayed in
+     * @return The new ListItemViewHolder
+     */
+    static ListItemViewHolder create(@NonNull ViewGroup parent) {
+        return new ListItemViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false));
+    }
+}
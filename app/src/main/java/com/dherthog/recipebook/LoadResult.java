@@ -0,0 +1,98 @@
+package com.dherthog.recipebook;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * The outcome of loading data from the cache or TheMealDB: either the data, or the Error that
+ * kept it from loading. Replaces empty lists and null as signs of failure.
+ * @param <T> The type of the loaded data
+ */
+class LoadResult<T> {
+
+    /**
+     * The reasons data could not be loaded.
+     */
+    enum Error {
+        OFFLINE, // Not cached and no network connection was available
+        NOT_FOUND, // TheMealDB has no such data
+        TIMEOUT, // TheMealDB did not answer in time
+        UNREACHABLE, // The connection failed or was interrupted
+        SERVER, // TheMealDB answered with an error
+        MALFORMED; // The response could not be decoded
+
+        /**
+         * @param e The error of a failed request
+         * @return The Error describing it
+         */
+        static Error of(IOException e) {
+            if (e instanceof SocketTimeoutException)
+                return TIMEOUT;
+            if (e instanceof HttpStatusException)
+                return ((HttpStatusException) e).getStatusCode() == 404 ? NOT_FOUND : SERVER;
+            if (e instanceof MalformedResponseException)
+                return MALFORMED;
+            return UNREACHABLE;
+        }
+    }
+
+    private final T value;
+    private final Error error;
+
+    /**
+     * @param value The loaded data. This value may be null on failure.
+     * @param error The reason of the failure, null on success
+     */
+    private LoadResult(T value, Error error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @param value The loaded data
+     * @param <T> The type of the loaded data
+     * @return A successful result
+     */
+    static <T> LoadResult<T> success(T value) {
+        return new LoadResult<>(value, null);
+    }
+
+    /**
+     * @param error The reason the data could not be loaded
+     * @param <T> The type of the data
+     * @return A failed result
+     */
+    static <T> LoadResult<T> failure(Error error) {
+        return new LoadResult<>(null, error);
+    }
+
+    /**
+     * @param e The error of the failed request
+     * @param <T> The type of the data
+     * @return A failed result with the Error describing the exception
+     */
+    static <T> LoadResult<T> failure(IOException e) {
+        return failure(Error.of(e));
+    }
+
+    /**
+     * @return True if the data was loaded
+     */
+    boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return The loaded data, null if the load failed
+     */
+    T getValue() {
+        return value;
+    }
+
+    /**
+     * @return The reason the load failed, null if it succeeded
+     */
+    Error getError() {
+        return error;
+    }
+}
@@ -3,18 +3,20 @@ package com.dherthog.recipebook;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.text.PrecomputedTextCompat;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.fragment.app.FragmentTransaction;
-import androidx.room.Room;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.app.Activity;
-import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.os.AsyncTask;
 import android.os.Bundle;
-import android.util.Pair;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.MenuItem;
 import android.widget.Toast;
 
@@ -31,45 +33,71 @@ import com.google.android.gms.ads.rewarded.RewardedAd;
 import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 import com.google.android.material.navigation.NavigationView;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * Controller of the application. Manages the database, ads, fragments, navigation drawer, and
  * api calls.
  */
-public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener, RecipeSelectedCommunicator, CategorySelectedCommunicator, FavoriteCommunicator {
+public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener, RecipeSelectedCommunicator, CategorySelectedCommunicator, FavoriteCommunicator, PrefetchCommunicator, SearchCommunicator, RefreshCommunicator, ViewPoolProvider {
 
     // Used for Navigation Drawer
     private DrawerLayout drawerLayout;
     private ActionBarDrawerToggle actionBarDrawerToggle;
 
-    // Stores categories since they may changed by The Meal DB
-    private ArrayList<Pair<String, String>> categories;
+    // The TaskEngine channel of screen loads, where only the latest navigation is displayed
+    private static final String SCREEN_CHANNEL = "screen";
+    // The TaskEngine channel of searches, where only the latest query is displayed
+    private static final String SEARCH_CHANNEL = "search";
+    // How long typing must pause before TMDB is searched
+    private static final long SEARCH_DEBOUNCE_MS = 300;
 
-    // Stores RecipeDao for queries
-    private RecipeDao recipeDao;
+    // Holds the displayed data across configuration changes
+    private RecipeBookViewModel viewModel;
 
-    // Stores the next ad to display
-    private InterstitialAd mInterstitialAd;
-    private RewardedAd mRewardedAd;
+    // Runs all favorites queries off the UI thread. Created once the first frame is drawn or when
+    // first needed, so loading the favorite index does not compete with the categories.
+    private FavoritesRepository favoritesRepository;
+
+    // The source of all data from TMDB
+    private RecipeRepository recipeRepository;
+
+    // Tracks the network and replays screen loads that failed offline once it returns
+    private ConnectivityMonitor connectivityMonitor;
+
+    // Loads the Instructions of visible Recipes before they are selected
+    private InstructionsPrefetcher instructionsPrefetcher;
+
+    // list_item Views shared by every list, so switching lists reuses inflated rows
+    private final RecyclerView.RecycledViewPool listItemViewPool = new RecyclerView.RecycledViewPool();
+
+    // Runs the loading of screens off the UI thread
+    private TaskEngine taskEngine;
+
+    // Delays the remote search until typing pauses
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingRemoteSearch; // The remote search waiting for typing to pause
+
+    // The number of ads of each kind kept preloaded
+    private static final int INTERSTITIAL_POOL_SIZE = 2;
+    private static final int REWARDED_POOL_SIZE = 2;
+
+    // The gate of the latest selected Recipe's Instructions and rewarded ad
+    private InstructionsGate instructionsGate;
+    private int instructionsGateId; // The id of the Recipe the gate was created for
+    // The text metrics of an instruction step, created on first use
+    private PrecomputedTextCompat.Params stepTextParams;
+
+    // Preloaded ads, so showing an ad never waits on a load
+    private AdPool<InterstitialAd> interstitialPool;
+    private AdPool<RewardedAd> rewardedPool;
 
     /**
-     * Initializes the Activity, MobileAds, the DB, navigation drawer, CategoriesFragment, and loads
-     * interstitial and rewarded ads.
+     * Initializes the Activity and requests the categories first, then the navigation drawer. Ads,
+     * favorites and the background sync are started once the first frame is drawn. When the
+     * Activity is recreated, the framework restores the displayed Fragments instead.
      * @param savedInstanceState If the activity is being re-initialized after previously being shut
      *                          down then this Bundle contains the data it most recently supplied in
      *                          onSaveInstanceState(Bundle). Note: Otherwise it is null. This value
@@ -78,19 +106,76 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer.mark(StartupTracer.Milestone.ACTIVITY_CREATED);
         setContentView(R.layout.activity_main);
 
-        MobileAds.initialize(this);
-
-        RecipeDatabase database = Room.databaseBuilder(this, RecipeDatabase.class, "recipeDB")
-                .allowMainThreadQueries()
-                .build();
-        recipeDao = database.getRecipeDAO();
+        // The categories are the first screen, so request them before anything else
+        connectivityMonitor = ConnectivityMonitor.getInstance(this);
+        recipeRepository = RecipeRepository.getInstance(this);
+        taskEngine = TaskEngine.getInstance();
+        viewModel = new ViewModelProvider(this).get(RecipeBookViewModel.class);
+        if (savedInstanceState == null) {
+            setCategoriesFragment();
+            StartupTracer.mark(StartupTracer.Milestone.CATEGORIES_REQUESTED);
+        }
 
+        instructionsPrefetcher = new InstructionsPrefetcher(this, recipeRepository);
+        interstitialPool = createInterstitialPool();
+        rewardedPool = createRewardedPool();
+        listItemViewPool.setMaxRecycledViews(ListItemViewHolder.VIEW_TYPE, 20);
         initializeNavigationDrawer();
-        setCategoriesFragment();
-        loadInterstitialAd();
-        loadRewardedAd();
+
+        NextDraw.run(getWindow().getDecorView(), this::onFirstFrame);
+    }
+
+    /**
+     * Starts the work deferred from onCreate once the first frame is drawn. The ad SDK starts
+     * right away, the database warm-up and sync scheduling wait until the UI thread is idle.
+     */
+    private void onFirstFrame() {
+        StartupTracer.mark(StartupTracer.Milestone.FIRST_FRAME);
+
+        MobileAds.initialize(this, initializationStatus -> {
+            StartupTracer.mark(StartupTracer.Milestone.ADS_INITIALIZED);
+            interstitialPool.fill();
+            rewardedPool.fill();
+        });
+
+        Looper.myQueue().addIdleHandler(() -> {
+            // Loads the favorite index on the database thread
+            getFavoritesRepository();
+
+            // Keep the cache and favorites fresh while the device charges
+            SyncWorker.schedule(this);
+
+            StartupTracer.mark(StartupTracer.Milestone.IDLE_WORK_DONE);
+            return false;
+        });
+    }
+
+    /**
+     * @return The FavoritesRepository, created on first use
+     */
+    private FavoritesRepository getFavoritesRepository() {
+        if (favoritesRepository == null)
+            favoritesRepository = FavoritesRepository.getInstance(this);
+        return favoritesRepository;
+    }
+
+    /**
+     * Stops prefetching, ad loading, pending searches and queued replays when the Activity is
+     * destroyed. Screen loads are cancelled through their bound Lifecycle, while a refresh of the
+     * favorites keeps running in the RecipeBookViewModel.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        instructionsPrefetcher.shutdown();
+        interstitialPool.close();
+        rewardedPool.close();
+        searchHandler.removeCallbacksAndMessages(null);
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
+        connectivityMonitor.cancel(SEARCH_CHANNEL);
     }
 
     /**
@@ -108,6 +193,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         NavigationView navigationView = findViewById(R.id.nav_view);
         navigationView.setNavigationItemSelectedListener(this);
 
+        // The startup timings are only offered in debug builds
+        navigationView.getMenu().findItem(R.id.nav_startup).setVisible(BuildConfig.DEBUG);
+
         // Makes the nav drawer icon always appear on the action bar
         Objects.requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
     }
@@ -141,65 +229,207 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         if (item.getItemId() == R.id.nav_favorites)
             setFavoritesFragment();
 
+        if (item.getItemId() == R.id.nav_search)
+            setSearchFragment();
+
+        if (item.getItemId() == R.id.nav_startup)
+            displayStartupTimings();
+
         return true;
     }
 
     /**
-     * Displays recipe categories from TMDB. Makes a network call to get recipe categories if they
-     * have not already been downloaded.
+     * Displays recipe categories from TMDB. Loads the categories from the cache or the network if
+     * they have not already been loaded.
      */
     private void setCategoriesFragment() {
 
-        // Categories have already been downloaded
-        if (categories != null)
-            displayCategories();
+        // A load queued while offline must not replace this screen
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
 
-        // Make a network to get the categories
-        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Create a new task in a separate thread! (not to get UI thread stuck!)
-            PrepareCategoriesTask prepareCategoriesTask = new PrepareCategoriesTask();
-            prepareCategoriesTask.execute("https://www.themealdb.com/api/json/v1/1/categories.php");
-        } else {
-            Toast.makeText(this, "No network connection available!", Toast.LENGTH_SHORT).show();
+        // Categories have already been loaded
+        if (viewModel.hasCategories()) {
+            displayCategories();
+            return;
         }
+
+        // Load the categories in the background (not to get UI thread stuck!)
+        RecipeRepository repository = recipeRepository;
+        taskEngine.latest(SCREEN_CHANNEL, "categories",
+                repository::getCategories,
+                result -> {
+                    if (!result.isSuccess()) {
+                        showLoadFailed(result.getError());
+                        replayWhenOnline(result.getError(), this::setCategoriesFragment);
+                        return;
+                    }
+
+                    StartupTracer.mark(StartupTracer.Milestone.CATEGORIES_LOADED);
+                    viewModel.setCategories(result.getValue());
+                    displayCategories();
+                }).bindTo(this);
     }
 
     /**
-     * Displays recipes from the given categoryName. Makes a network call to get Recipe list.
+     * Displays recipes from the given categoryName. Loads the Recipe list from the cache or the
+     * network.
      * @param categoryName The name of the Recipe category to fetch instructions for
      */
     private void setRecipesFragment(String categoryName) {
 
-        // Make a network to get the recipies
-        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null && networkInfo.isConnected()) {
-            //Create a new task in a separate thread! (not to get UI thread stuck!)
-            PrepareRecipiesTask prepareRecipiesTask = new PrepareRecipiesTask();
-            prepareRecipiesTask.execute("https://www.themealdb.com/api/json/v1/1/filter.php?c=" + categoryName);
-        } else {
-            Toast.makeText(this, "No network connection available!", Toast.LENGTH_SHORT).show();
+        // A load queued while offline must not replace this screen
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
+
+        // Load the Recipes in the background (not to get UI thread stuck!)
+        RecipeRepository repository = recipeRepository;
+        taskEngine.latest(SCREEN_CHANNEL, "recipes:" + categoryName,
+                () -> repository.getRecipes(categoryName),
+                result -> {
+                    if (!result.isSuccess()) {
+                        showLoadFailed(result.getError());
+                        replayWhenOnline(result.getError(), () -> setRecipesFragment(categoryName));
+                        return;
+                    }
+
+                    viewModel.setRecipes(categoryName, result.getValue());
+                    displayRecipes(categoryName);
+                }).bindTo(this);
+    }
+
+    /**
+     * Loads the Instructions of the given Recipe id for the gate. Favorites are read from their
+     * stored Instructions, other Recipes are loaded from the cache or the network.
+     * @param id The id of the Recipe to fetch instructions for
+     * @param isFavorite True if the Recipe is a favorite
+     * @param gate The gate releasing the Instructions once the rewarded ad is finished
+     */
+    private void setInstructionsFragment(int id, boolean isFavorite, InstructionsGate gate) {
+
+        // A load queued while offline must not replace this screen
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
+
+        // Favorites open without a network connection
+        if (isFavorite) {
+            // A screen still loading must not replace the favorite
+            taskEngine.cancel(SCREEN_CHANNEL);
+
+            getFavoritesRepository().getInstructions(id, instructions -> {
+                // Favorited before Instructions were stored with favorites
+                if (instructions == null) {
+                    loadInstructions(id, true);
+                    return;
+                }
+
+                instructionsLoaded(instructions, gate);
+            }).bindTo(this);
+            return;
         }
+
+        loadInstructions(id, false);
     }
 
     /**
-     * Displays recipes from the given Recipe id. Makes a network call to get recipe list.
+     * Loads the Instructions of a Recipe from the cache or the network for the latest gate.
      * @param id The id of the Recipe to fetch instructions for
+     * @param favorite True if the Recipe is a favorite without stored Instructions
      */
-    private void setInstructionsFragment(int id) {
-
-        // Make a network to get the recipies
-        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null && networkInfo.isConnected()) {
-            //Create a new task in a separate thread! (not to get UI thread stuck!)
-            PrepareInstructionsTask prepareInstructionsTask = new PrepareInstructionsTask();
-            prepareInstructionsTask.execute("https://www.themealdb.com/api/json/v1/1/lookup.php?i=" + id);
-        } else {
-            Toast.makeText(this, "No network connection available!", Toast.LENGTH_SHORT).show();
+    private void loadInstructions(int id, boolean favorite) {
+
+        // Load the Instructions in the background (not to get UI thread stuck!)
+        RecipeRepository repository = recipeRepository;
+        taskEngine.latest(SCREEN_CHANNEL, "instructions:" + id,
+                () -> repository.getInstructions(id),
+                result -> {
+                    // Selecting the same Recipe again reuses this load, so it answers the gate of
+                    // the latest selection rather than the one it was started for
+                    InstructionsGate gate = instructionsGate;
+                    if (!result.isSuccess()) {
+                        gate.instructionsFailed(result.getError());
+                        return;
+                    }
+
+                    Instructions instructions = result.getValue();
+                    // Store the complete Instructions so the favorite opens offline from now on
+                    if (favorite && instructions.getIngredients() != null)
+                        getFavoritesRepository().storeInstructions(instructions);
+
+                    instructionsLoaded(instructions, gate);
+                }).bindTo(this);
+    }
+
+    /**
+     * Hands loaded Instructions to the gate, decoding their hero image and laying out their steps
+     * while the ad plays.
+     * @param instructions The loaded Instructions
+     * @param gate The gate releasing the Instructions once the rewarded ad is finished
+     */
+    private void instructionsLoaded(Instructions instructions, InstructionsGate gate) {
+        ImageLoader.getInstance(this).prefetchHero(instructions.getImageUrl());
+        if (stepTextParams == null)
+            stepTextParams = StepListAdapter.getTextParams(findViewById(R.id.fragmentPlaceholder));
+        // The InstructionsFragment displays the steps held by the ViewModel
+        viewModel.getSteps(instructions, stepTextParams);
+        gate.instructionsLoaded(instructions);
+    }
+
+    /**
+     * Runs an action once the Activity is started, e.g. when a rewarded ad closes before the
+     * Activity is back in the foreground and Fragments can't be committed yet.
+     * @param action The action to run on the UI thread
+     */
+    private void runWhenStarted(Runnable action) {
+        Lifecycle lifecycle = getLifecycle();
+        if (lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            action.run();
+            return;
         }
+
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_START) {
+                    lifecycle.removeObserver(this);
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues a screen load that failed for lack of a network connection, so it is retried once a
+     * network is available. Only the latest such load is kept.
+     * @param error The reason the load failed
+     * @param load The load to retry
+     */
+    private void replayWhenOnline(LoadResult.Error error, Runnable load) {
+        if (error == LoadResult.Error.OFFLINE)
+            connectivityMonitor.whenOnline(SCREEN_CHANNEL, () -> runWhenStarted(load));
+    }
+
+    /**
+     * Notifies the user that data could not be loaded.
+     * @param error The reason the data could not be loaded
+     */
+    private void showLoadFailed(LoadResult.Error error) {
+        String message;
+        switch (error) {
+            case OFFLINE:
+                message = "No network connection available!";
+                break;
+            case NOT_FOUND:
+                message = "TheMealDB has no such recipe!";
+                break;
+            case TIMEOUT:
+                message = "TheMealDB took too long to answer!";
+                break;
+            case SERVER:
+            case MALFORMED:
+                message = "TheMealDB is having trouble, try again later!";
+                break;
+            default:
+                message = "Could not reach TheMealDB!";
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
     /**
@@ -207,11 +437,104 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
      */
     private void setFavoritesFragment() {
 
-        // Get the Recipes from the DB
-        ArrayList<Recipe> favoriteRecipes = (ArrayList<Recipe>) recipeDao.getAllRecipes();
+        // A screen still loading must not replace the favorites
+        taskEngine.cancel(SCREEN_CHANNEL);
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
 
-        // Display the Recipes
-        displayFavorites(favoriteRecipes);
+        // Get the Recipes from the DB, then display them
+        getFavoritesRepository().getAll(favorites -> {
+            viewModel.setFavorites(favorites);
+            displayFavorites();
+        }).bindTo(this);
+    }
+
+    /**
+     * Displays the search of the meals downloaded so far.
+     */
+    private void setSearchFragment() {
+
+        // A screen still loading must not replace the search
+        taskEngine.cancel(SCREEN_CHANNEL);
+        connectivityMonitor.cancel(SCREEN_CHANNEL);
+
+        FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
+        ft.replace(R.id.fragmentPlaceholder, new SearchFragment())
+                .addToBackStack(null)
+                .commit();
+    }
+
+    /**
+     * Searches the local index for the query right away, then searches TMDB once typing pauses.
+     * Each keystroke supersedes the searches of the previous query, so results never arrive out of
+     * order.
+     * @param query The text entered by the user
+     */
+    @Override
+    public void searchQueryChanged(String query) {
+        if (pendingRemoteSearch != null)
+            searchHandler.removeCallbacks(pendingRemoteSearch);
+        connectivityMonitor.cancel(SEARCH_CHANNEL);
+
+        if (query.trim().isEmpty()) {
+            taskEngine.cancel(SEARCH_CHANNEL);
+            viewModel.setSearchResults(new ArrayList<>());
+            return;
+        }
+
+        RecipeRepository repository = recipeRepository;
+        taskEngine.latest(SEARCH_CHANNEL, "local:" + query,
+                () -> repository.searchLocal(query),
+                results -> {
+                    viewModel.setSearchResults(results);
+                    scheduleRemoteSearch(query);
+                }).bindTo(this);
+    }
+
+    /**
+     * Searches TMDB and the local index for the query after SEARCH_DEBOUNCE_MS, unless the query
+     * changes before then.
+     * @param query The text entered by the user
+     */
+    private void scheduleRemoteSearch(String query) {
+        RecipeRepository repository = recipeRepository;
+        pendingRemoteSearch = () -> {
+            // The user navigated away from the search
+            if (!(getSupportFragmentManager().findFragmentById(R.id.fragmentPlaceholder) instanceof SearchFragment))
+                return;
+
+            // Search TMDB once the network returns, the local results are already shown
+            if (!connectivityMonitor.isOnline()) {
+                connectivityMonitor.whenOnline(SEARCH_CHANNEL, () -> scheduleRemoteSearch(query));
+                return;
+            }
+
+            taskEngine.latest(SEARCH_CHANNEL, "remote:" + query,
+                    () -> repository.search(query),
+                    viewModel::setSearchResults).bindTo(this);
+        };
+        searchHandler.postDelayed(pendingRemoteSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Refreshes every favorite from TMDB. The RecipeBookViewModel runs the refresh, so it keeps
+     * reporting its progress to the FavoritesFragment through configuration changes.
+     */
+    @Override
+    public void refreshFavorites() {
+        if (!connectivityMonitor.isOnline()) {
+            showLoadFailed(LoadResult.Error.OFFLINE);
+            return;
+        }
+
+        viewModel.refreshFavorites();
+    }
+
+    /**
+     * @return The pool of list_item Views shared by every list
+     */
+    @Override
+    public RecyclerView.RecycledViewPool getListItemViewPool() {
+        return listItemViewPool;
     }
 
     /**
@@ -220,23 +543,37 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
      */
     private void displayCategories() {
         FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
-        CategoriesFragment cf = new CategoriesFragment(this, categories);
+        CategoriesFragment cf = new CategoriesFragment();
         ft.replace(R.id.fragmentPlaceholder, cf)
                 .addToBackStack(null)
                 .commit();
+
+        // Trace when the categories first reach the screen
+        if (!StartupTracer.isMarked(StartupTracer.Milestone.CATEGORIES_RENDERED))
+            NextDraw.run(findViewById(R.id.fragmentPlaceholder), () -> StartupTracer.mark(StartupTracer.Milestone.CATEGORIES_RENDERED));
     }
 
     /**
-     * Creates a RecipesFragment to display downloaded Recipes and loads it into a
-     * placeholder.
-     * @param recipes The ArrayList<Recipe> of Recipes to display
+     * Displays the timings of the cold start. Only reachable in debug builds.
      */
-    private void displayRecipes(ArrayList<Recipe> recipes) {
+    private void displayStartupTimings() {
+        FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
+        ft.replace(R.id.fragmentPlaceholder, new StartupFragment())
+                .addToBackStack(null)
+                .commit();
+    }
+
+    /**
+     * Creates a RecipesFragment to display the downloaded Recipes of a category and loads it into
+     * a placeholder.
+     * @param categoryName The name of the category, whose Recipes are held by the ViewModel
+     */
+    private void displayRecipes(String categoryName) {
         // Shows an interstitial add before displaying the recipes
         showInterstitialAd();
 
         FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
-        RecipesFragment rf = new RecipesFragment(this, recipes);
+        RecipesFragment rf = RecipesFragment.newInstance(categoryName);
         ft.replace(R.id.fragmentPlaceholder, rf)
                 .addToBackStack(null)
                 .commit();
@@ -248,136 +585,124 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
      * @param instructions The Instructions to display
      */
     private void displayInstructions(Instructions instructions) {
-        // Determine if the Recipe is a favorite
-        boolean isFavorite = false;
-        if (recipeDao.getRecipeByID(instructions.getId()).size() > 0)
-            isFavorite = true;
-
-        FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
-        InstructionsFragment instructionsFragment = new InstructionsFragment(instructions, isFavorite, this);
-        ft.replace(R.id.fragmentPlaceholder, instructionsFragment)
-                .addToBackStack(null)
-                .commit();
+        viewModel.setInstructions(instructions);
+
+        // Determine if the Recipe is a favorite, then display it
+        getFavoritesRepository().isFavorite(instructions.getId(), isFavorite -> {
+            FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
+            InstructionsFragment instructionsFragment = InstructionsFragment.newInstance(instructions.getId(), isFavorite);
+            ft.replace(R.id.fragmentPlaceholder, instructionsFragment)
+                    .addToBackStack(null)
+                    .commit();
+        }).bindTo(this);
     }
 
     /**
-     * Creates an FavoritesFragment to display favorite Recipes from the DB and loads it into a
-     * placeholder.
-     * @param favoriteRecipes The Recipes to display
+     * Creates an FavoritesFragment to display the favorite Recipes held by the ViewModel and loads
+     * it into a placeholder.
      */
-    private void displayFavorites(ArrayList<Recipe> favoriteRecipes) {
+    private void displayFavorites() {
         FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
-        FavoritesFragment ff = new FavoritesFragment(this, favoriteRecipes);
+        FavoritesFragment ff = new FavoritesFragment();
         ft.replace(R.id.fragmentPlaceholder, ff)
                 .addToBackStack(null)
                 .commit();
     }
 
     /**
-     * Loads a new interstitial ad.
+     * Creates the pool of preloaded interstitial ads.
+     * @return An AdPool of interstitial ads
      */
-    private void loadInterstitialAd() {
-        // ca-app-pub-... is the test ad id for interstitial ads
-        InterstitialAd.load(this, "ca-app-pub-3940256099942544/1033173712", new AdRequest.Builder().build(),
-                new InterstitialAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull InterstitialAd interstitialAd) {
-                        mInterstitialAd = interstitialAd;
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        mInterstitialAd = null;
-                    }
-                });
+    private AdPool<InterstitialAd> createInterstitialPool() {
+        return new AdPool<>(INTERSTITIAL_POOL_SIZE, callback ->
+                // ca-app-pub-... is the test ad id for interstitial ads
+                InterstitialAd.load(this, "ca-app-pub-3940256099942544/1033173712", new AdRequest.Builder().build(),
+                        new InterstitialAdLoadCallback() {
+                            @Override
+                            public void onAdLoaded(@NonNull InterstitialAd interstitialAd) {
+                                callback.onLoaded(interstitialAd);
+                            }
+
+                            @Override
+                            public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                                callback.onFailed();
+                            }
+                        }));
     }
 
     /**
-     * Loads a new rewarded ad.
+     * Creates the pool of preloaded rewarded ads.
+     * @return An AdPool of rewarded ads
      */
-    private void loadRewardedAd() {
-        // ca-app-pub-... is the test ad id for interstitial ads
-        RewardedAd.load(this, "ca-app-pub-3940256099942544/5224354917", new AdRequest.Builder().build(),
-                new RewardedAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull RewardedAd rewardedAd) {
-                        mRewardedAd = rewardedAd;
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        mRewardedAd = null;
-                    }
-                });
+    private AdPool<RewardedAd> createRewardedPool() {
+        return new AdPool<>(REWARDED_POOL_SIZE, callback ->
+                // ca-app-pub-... is the test ad id for rewarded ads
+                RewardedAd.load(this, "ca-app-pub-3940256099942544/5224354917", new AdRequest.Builder().build(),
+                        new RewardedAdLoadCallback() {
+                            @Override
+                            public void onAdLoaded(@NonNull RewardedAd rewardedAd) {
+                                callback.onLoaded(rewardedAd);
+                            }
+
+                            @Override
+                            public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                                callback.onFailed();
+                            }
+                        }));
     }
 
     /**
-     * Displays the current interstitial ad.
+     * Displays a preloaded interstitial ad, if one is ready. Never waits for an ad to load.
      */
     private void showInterstitialAd() {
-        // If the ad is not loaded, cannot show the ad
-        if (mInterstitialAd == null)
+        // If no ad is ready, the content is displayed without one
+        InterstitialAd interstitialAd = interstitialPool.take();
+        if (interstitialAd == null)
             return;
 
-        // Load a new ad after the current on has played
-        mInterstitialAd.setFullScreenContentCallback(new FullScreenContentCallback() {
-            @Override
-            public void onAdDismissedFullScreenContent() {
-                // Called when fullscreen content is dismissed.
-                // Load a new ad to display next
-                loadInterstitialAd();
-            }
-
-            @Override
-            public void onAdFailedToShowFullScreenContent(AdError adError) {
-                // Called when fullscreen content failed to show.
-                // Load a new ad to display next
-                loadInterstitialAd();
-            }
-
-            @Override
-            public void onAdShowedFullScreenContent() { }
-        });
-        mInterstitialAd.show(this);
+        interstitialAd.show(this);
     }
 
     /**
-     * Displays the current rewarded ad.
+     * Displays a preloaded rewarded ad in front of the loading Instructions. The gate releases the
+     * Instructions once the ad closes with its reward earned. If no ad is ready or it fails to
+     * show, the gate releases them as soon as they have loaded.
+     * @param gate The gate of the Instructions being loaded
      */
-    private void showRewardedAd(Instructions instructions) {
-        // If the ad is not loaded, cannot show the ad
-        if (mRewardedAd == null) {
-            displayInstructions(instructions);
+    private void showRewardedAd(InstructionsGate gate) {
+        // The load already failed, so its error is shown without an ad
+        if (gate.hasFailed()) {
+            gate.adSkipped();
             return;
         }
 
-        // Load a new ad after the current on has played
-        mRewardedAd.setFullScreenContentCallback(new FullScreenContentCallback() {
-            @Override
-            public void onAdShowedFullScreenContent() {
-                // Called when fullscreen content is dismissed.
-                // Load a new ad to display next
-                loadRewardedAd();
-            }
+        // If no ad is ready, the content is displayed without one
+        RewardedAd rewardedAd = rewardedPool.take();
+        if (rewardedAd == null) {
+            gate.adSkipped();
+            return;
+        }
 
+        rewardedAd.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override
-            public void onAdFailedToShowFullScreenContent(AdError adError) {
-                // Called when fullscreen content is dismissed.
-                // Load a new ad to display next
-                loadRewardedAd();
+            public void onAdDismissedFullScreenContent() {
+                gate.adDismissed();
             }
 
             @Override
-            public void onAdDismissedFullScreenContent() { }
+            public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                // The ad must not keep the user from the Instructions
+                gate.adSkipped();
+            }
         });
 
         // Show the ad
         Activity activityContext = MainActivity.this;
-        mRewardedAd.show(activityContext, new OnUserEarnedRewardListener() {
+        rewardedAd.show(activityContext, new OnUserEarnedRewardListener() {
             @Override
             public void onUserEarnedReward(@NonNull RewardItem rewardItem) {
-                // Display the selected instructions if the user watched the ad to completion
-                displayInstructions(instructions);
+                // Display the selected instructions once the user closes the completed ad
+                gate.rewardEarned();
             }
         });
     }
@@ -393,303 +718,91 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     }
 
     /**
-     * Starts the flow of displaying Instructions from the selected Recipe. (Download instructions,
-     * display rewareded ad, create and attach fragment)
+     * Starts the flow of displaying Instructions from the selected Recipe. The rewarded ad is shown
+     * right away while the Instructions load behind it, and they are displayed once both are done.
+     * The ad is skipped when offline, unless the Recipe is a favorite stored on the device.
      * @param id The id of the selected Recipe.
      */
     @Override
     public void recipeSelected(int id) {
-        setInstructionsFragment(id);
-    }
-
-    /**
-     * Inserts/deletes the selected Recipe from the DB
-     * @param recipe The Recipe
-     */
-    @Override
-    public void recipeFavorited(Recipe recipe) {
-        // Delete the corresponding Recipe if it is stored in the DB
-        if (recipeDao.getRecipeByID(recipe.getId()).size() > 0) {
-            recipeDao.delete(recipe);
+        // A repeated tap on a Recipe still being opened must not show a second ad
+        if (instructionsGate != null && instructionsGate.isPending() && instructionsGateId == id)
             return;
-        }
-
-        // Insert the Recipe into the DB
-        recipeDao.insert(recipe);
-    }
-
-    /**
-     * @param categories An ArrayList of categories
-     */
-    private void setCategories(ArrayList<Pair<String, String>> categories) {
-        this.categories = categories;
-    }
-
-    /**
-     * Inner class used to download category data from TheMealDB.
-     */
-    private class PrepareCategoriesTask extends AsyncTask<String, Void, String> {
-
-        // The downloaded list of categories
-        ArrayList<Pair<String, String>> categories;
-
-        /**
-         * Downloads and parses category data.
-         * @param urls A single URL to get category data from
-         * @return An empty string
-         */
-        @Override
-        protected String doInBackground(String... urls) {
-            String categoryData = downloadCategoryData(urls[0]);
-            categories = parseCategoryData(categoryData);
-
-            return "";
-        }
-
-        /**
-         * Calls TMDB api to get category data.
-         * @return The returned JSONObject
-         */
-        private String downloadCategoryData(String url) {
-            InputStream is;
-            StringBuilder result  = new StringBuilder();
-            URL myUrl;
-            try {
-                myUrl = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) myUrl.openConnection();
-                connection.setReadTimeout(3000);
-                connection.setConnectTimeout(3000);
-                connection.setRequestMethod("GET");
-                connection.setDoInput(true);
-                connection.connect();
-                int responseCode = connection.getResponseCode();
-
-                // If the connection was bad, do not read data
-                if (responseCode != HttpURLConnection.HTTP_OK){
-                    throw new IOException("Connection not successful!");
-                }
-                is = connection.getInputStream();
 
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    result.append(line);
-                }
+        // Only the latest selection may display its Instructions
+        if (instructionsGate != null)
+            instructionsGate.cancel();
 
-            } catch (IOException e) {
-                e.printStackTrace();
+        InstructionsGate gate = new InstructionsGate(new InstructionsGate.Listener() {
+            @Override
+            public void onReady(Instructions instructions) {
+                runWhenStarted(() -> displayInstructions(instructions));
             }
 
-            return result.toString();
-        }
-
-        /**
-         * Creates an ArrayList<Pair<String, String>> to store category titles and their
-         * corresponding images.
-         * @param categoryData The JSONObject to parse
-         * @return A HashMap of Integer-String pairs for genre mappings
-         */
-        private ArrayList<Pair<String, String>> parseCategoryData(String categoryData) {
-            ArrayList<Pair<String, String>> result = new ArrayList<>();
-            try{
-                JSONArray jsonGenresArray = new JSONObject(categoryData).getJSONArray("categories");
-
-                for (int i = 0; i < jsonGenresArray.length(); i++) {
-                    JSONObject curObj = jsonGenresArray.getJSONObject(i);
-                    result.add(new Pair<>(curObj.getString("strCategory"), curObj.getString("strCategoryThumb")));
-                }
-            } catch (JSONException e) {
-                e.printStackTrace();
+            @Override
+            public void onFailed(LoadResult.Error error) {
+                runWhenStarted(() -> showLoadFailed(error));
             }
-            return result;
-        }
-
-        /**
-         * Triggers UI to display the returned categories and sets the categories of MainActivity.
-         * @param s
-         */
-        @Override
-        protected void onPostExecute(String s) {
-            setCategories(categories);
-            displayCategories();
-        }
+        });
+        instructionsGate = gate;
+        instructionsGateId = id;
+
+        // Answered right away once the favorite index has loaded, from the database until then
+        getFavoritesRepository().isFavorite(id, isFavorite -> {
+            // Another Recipe was selected meanwhile
+            if (!gate.isPending())
+                return;
+
+            setInstructionsFragment(id, isFavorite, gate);
+
+            // Offline most Recipes can't load, so the user isn't made to watch an ad for an error
+            if (!connectivityMonitor.isOnline() && !isFavorite)
+                gate.adSkipped();
+            else
+                showRewardedAd(gate);
+        }).bindTo(this);
     }
 
     /**
-     * Inner class used to download recipe data from TheMealDB.
+     * Prefetches the Instructions of the visible Recipes while an unmetered network is available.
+     * @param recipes The visible Recipes, in display order
      */
-    private class PrepareRecipiesTask extends AsyncTask<String, Void, String> {
-
-        // The downloaded list of Recipes
-        ArrayList<Recipe> recipes;
-
-        /**
-         * Downloads and parses Recipe data.
-         * @param urls A single URL to get Recipe data from
-         * @return An empty string
-         */
-        @Override
-        protected String doInBackground(String... urls) {
-            String recipeData = downloadRecipeData(urls[0]);
-            recipes = parseRecipeData(recipeData);
-
-            return "";
-        }
-
-        /**
-         * Calls TMDB api to get recipe data.
-         * @return The returned JSONObject
-         */
-        private String downloadRecipeData(String url) {
-            InputStream is;
-            StringBuilder result  = new StringBuilder();
-            URL myUrl;
-            try {
-                myUrl = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) myUrl.openConnection();
-                connection.setReadTimeout(3000);
-                connection.setConnectTimeout(3000);
-                connection.setRequestMethod("GET");
-                connection.setDoInput(true);
-                connection.connect();
-                int responseCode = connection.getResponseCode();
-
-                // If the connection was bad, do not read data
-                if (responseCode != HttpURLConnection.HTTP_OK){
-                    throw new IOException("Connection not successful!");
-                }
-                is = connection.getInputStream();
-
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    result.append(line);
-                }
-
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
-            return result.toString();
-        }
-
-        /**
-         * Creates an ArrayList<Pair<Recipe> to store Recipe data.
-         * @param recipeData The JSONObject to parse
-         * @return A ArrayList of Recipes
-         */
-        private ArrayList<Recipe> parseRecipeData(String recipeData) {
-            ArrayList<Recipe> result = new ArrayList<>();
-            try{
-                JSONArray jsonGenresArray = new JSONObject(recipeData).getJSONArray("meals");
-
-                for (int i = 0; i < jsonGenresArray.length(); i++) {
-                    JSONObject curObj = jsonGenresArray.getJSONObject(i);
-                    result.add(new Recipe(Integer.parseInt(curObj.getString("idMeal")), curObj.getString("strMeal"), curObj.getString("strMealThumb")));
-                }
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            return result;
-        }
-
-        /**
-         * Triggers UI to display the returned Recipes
-         * @param s
-         */
-        @Override
-        protected void onPostExecute(String s) {
-            displayRecipes(recipes);
-        }
+    @Override
+    public void recipesVisible(List<Recipe> recipes) {
+        // Prefetches are speculative, so they are not worth mobile data
+        if (connectivityMonitor.isOnline() && !connectivityMonitor.isMetered())
+            instructionsPrefetcher.prefetch(recipes);
     }
 
     /**
-     * Inner class used to download instructions from TheMealDB for the chosen Recipe.
+     * Drops queued prefetches once their Recipes are no longer displayed.
      */
-    private class PrepareInstructionsTask extends AsyncTask<String, Void, String> {
-
-        // The returned instructions
-        Instructions instructions;
-
-        /**
-         * Downloads and parses instructions.
-         * @param urls A single URL to get instructions data from
-         * @return An empty string
-         */
-        @Override
-        protected String doInBackground(String... urls) {
-            String instructionsData = downloadInstructionsData(urls[0]);
-            instructions = parseRecipeData(instructionsData);
-
-            return "";
-        }
-
-        /**
-         * Calls TMDB api to get instructions
-         * @return The returned JSONObject
-         */
-        private String downloadInstructionsData(String url) {
-            InputStream is;
-            StringBuilder result  = new StringBuilder();
-            URL myUrl;
-            try {
-                myUrl = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) myUrl.openConnection();
-                connection.setReadTimeout(3000);
-                connection.setConnectTimeout(3000);
-                connection.setRequestMethod("GET");
-                connection.setDoInput(true);
-                connection.connect();
-                int responseCode = connection.getResponseCode();
-
-                // If the connection was bad, do not read data
-                if (responseCode != HttpURLConnection.HTTP_OK){
-                    throw new IOException("Connection not successful!");
-                }
-                is = connection.getInputStream();
-
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    result.append(line);
-                }
+    @Override
+    public void recipesHidden() {
+        instructionsPrefetcher.cancel();
+    }
 
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Inserts/deletes the selected Recipe and its Instructions from the DB. A failed write is
+     * reported to the user and the listener.
+     * @param instructions The Instructions of the Recipe
+     * @param listener Receives whether the Recipe is a favorite once the change is written
+     */
+    @Override
+    public void recipeFavorited(Instructions instructions, FavoriteCommunicator.Listener listener) {
+        // Not bound to the Activity, a queued write must not be dropped on rotation
+        getFavoritesRepository().toggle(instructions, new TaskEngine.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean favorited) {
+                listener.favoriteCommitted(favorited);
             }
 
-            return result.toString();
-        }
-
-        /**
-         * Creates an Instructions object to store the returned instructions.
-         * @param categoryData The JSONObject to parse
-         * @return The parsed instructions
-         */
-        private Instructions parseRecipeData(String categoryData) {
-            Instructions instructions = null;
-            try {
-                JSONArray jsonGenresArray = new JSONObject(categoryData).getJSONArray("meals");
-                JSONObject instructionsObj = jsonGenresArray.getJSONObject(0);
-                instructions = new Instructions(Integer.parseInt(instructionsObj.getString("idMeal")),
-                        instructionsObj.getString("strMeal"),
-                        instructionsObj.getString("strCategory"),
-                        instructionsObj.getString("strArea"),
-                        instructionsObj.getString("strMealThumb"),
-                        instructionsObj.getString("strInstructions"));
-            } catch (JSONException e) {
+            @Override
+            public void onError(Exception e) {
                 e.printStackTrace();
+                Toast.makeText(getApplicationContext(), "Could not update your favorites!", Toast.LENGTH_SHORT).show();
+                listener.favoriteFailed();
             }
-            return instructions;
-        }
-
-        /**
-         * Triggers UI to display the returned Instructions after a rewarded ad.
-         * @param s
-         */
-        @Override
-        protected void onPostExecute(String s) {
-            showRewardedAd(instructions);
-        }
+        });
     }
-}
\ No newline at end of file
+}
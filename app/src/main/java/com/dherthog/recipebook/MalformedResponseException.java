@@ -0,0 +1,17 @@
+package com.dherthog.recipebook;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the body of a response could not be decoded. Repeating the request would return the
+ * same body, so it is never retried.
+ */
+class MalformedResponseException extends IOException {
+
+    /**
+     * @param cause The error raised while decoding the body
+     */
+    MalformedResponseException(Throwable cause) {
+        super("Malformed response", cause);
+    }
+}
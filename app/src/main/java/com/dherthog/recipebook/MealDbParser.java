@@ -0,0 +1,295 @@
+package com.dherthog.recipebook;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Pair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-based decoders for TheMealDB responses. Reads directly from the response stream into model
+ * objects and skips every field the application does not use.
+ */
+final class MealDbParser {
+
+    // TMDB lists up to this many ingredients per meal, as strIngredient1 to strIngredient20
+    private static final int MAX_INGREDIENTS = 20;
+
+    private MealDbParser() { }
+
+    /**
+     * Decodes a categories.php response. Categories without a title are skipped.
+     * @param body The response body
+     * @return An ArrayList of category title-image URL pairs
+     * @throws IOException If the body could not be read or is malformed
+     */
+    static ArrayList<Pair<String, String>> parseCategories(InputStream body) throws IOException {
+        ArrayList<Pair<String, String>> result = new ArrayList<>();
+        JsonReader reader = newReader(body);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("categories") || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String title = null, imageUrl = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "strCategory":
+                            title = nextString(reader);
+                            break;
+                        case "strCategoryThumb":
+                            imageUrl = nextString(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                // The title is the category's key, so a category without one can't be stored
+                if (title == null || title.trim().isEmpty())
+                    continue;
+                result.add(new Pair<>(title, imageUrl));
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return result;
+    }
+
+    /**
+     * Decodes a filter.php response.
+     * @param body The response body
+     * @return An ArrayList of Recipes
+     * @throws IOException If the body could not be read or is malformed
+     */
+    static ArrayList<Recipe> parseRecipes(InputStream body) throws IOException {
+        ArrayList<Recipe> result = new ArrayList<>();
+        JsonReader reader = newReader(body);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("meals") || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int id = 0;
+                String name = null, imageUrl = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "idMeal":
+                            id = nextId(reader);
+                            break;
+                        case "strMeal":
+                            name = nextString(reader);
+                            break;
+                        case "strMealThumb":
+                            imageUrl = nextString(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                result.add(new Recipe(id, name, imageUrl));
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return result;
+    }
+
+    /**
+     * Decodes a lookup.php response.
+     * @param body The response body
+     * @return The first meal of the response, or null if the response contains no meals
+     * @throws IOException If the body could not be read or is malformed
+     */
+    static Instructions parseInstructions(InputStream body) throws IOException {
+        Instructions result = null;
+        JsonReader reader = newReader(body);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("meals") || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                // Only the first meal is used
+                if (result != null) {
+                    reader.skipValue();
+                    continue;
+                }
+                result = readInstructions(reader);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return result;
+    }
+
+    /**
+     * Decodes a search.php response.
+     * @param body The response body
+     * @return An ArrayList of every meal of the response, empty if no meal matched
+     * @throws IOException If the body could not be read or is malformed
+     */
+    static ArrayList<Instructions> parseMeals(InputStream body) throws IOException {
+        ArrayList<Instructions> result = new ArrayList<>();
+        JsonReader reader = newReader(body);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("meals") || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext())
+                result.add(readInstructions(reader));
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return result;
+    }
+
+    /**
+     * Reads a single meal object of a lookup.php or search.php response.
+     * @param reader The JsonReader positioned at the meal object
+     * @return The parsed Instructions
+     * @throws IOException If the body could not be read or is malformed
+     */
+    private static Instructions readInstructions(JsonReader reader) throws IOException {
+        int id = 0;
+        String name = null, category = null, area = null, imageUrl = null, instructions = null;
+        String[] ingredientNames = new String[MAX_INGREDIENTS];
+        String[] measures = new String[MAX_INGREDIENTS];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "idMeal":
+                    id = nextId(reader);
+                    break;
+                case "strMeal":
+                    name = nextString(reader);
+                    break;
+                case "strCategory":
+                    category = nextString(reader);
+                    break;
+                case "strArea":
+                    area = nextString(reader);
+                    break;
+                case "strMealThumb":
+                    imageUrl = nextString(reader);
+                    break;
+                case "strInstructions":
+                    instructions = nextString(reader);
+                    break;
+                default:
+                    // Sources, tags, videos, etc. are never used
+                    if (field.startsWith("strIngredient"))
+                        readNumbered(reader, field, "strIngredient", ingredientNames);
+                    else if (field.startsWith("strMeasure"))
+                        readNumbered(reader, field, "strMeasure", measures);
+                    else
+                        reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // TMDB pads the unused ingredient slots with empty strings or nulls
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0; i < MAX_INGREDIENTS; i++) {
+            if (ingredientNames[i] != null && !ingredientNames[i].trim().isEmpty())
+                ingredients.add(new Ingredient(ingredientNames[i].trim(), measures[i]));
+        }
+
+        return new Instructions(id, name, category, area, imageUrl, instructions, ingredients);
+    }
+
+    /**
+     * Reads a numbered field such as strIngredient3 into its slot of an array. Fields with a number
+     * outside of the array are skipped.
+     * @param reader The JsonReader positioned at the field's value
+     * @param field The name of the field
+     * @param prefix The name of the field without its number
+     * @param values The array holding the value of each numbered field, indexed from 0
+     * @throws IOException If the value could not be read
+     */
+    private static void readNumbered(JsonReader reader, String field, String prefix, String[] values) throws IOException {
+        int index;
+        try {
+            index = Integer.parseInt(field.substring(prefix.length())) - 1;
+        } catch (NumberFormatException e) {
+            index = -1;
+        }
+
+        if (index < 0 || index >= values.length) {
+            reader.skipValue();
+            return;
+        }
+        values[index] = nextString(reader);
+    }
+
+    /**
+     * @param body The response body
+     * @return A JsonReader reading the body as UTF-8
+     */
+    private static JsonReader newReader(InputStream body) {
+        return new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param reader The JsonReader positioned at a string or null value
+     * @return The string value, or null if the value is null
+     * @throws IOException If the value could not be read
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * @param reader The JsonReader positioned at a meal id
+     * @return The meal id
+     * @throws IOException If the value could not be read or is not a number
+     */
+    private static int nextId(JsonReader reader) throws IOException {
+        try {
+            return Integer.parseInt(reader.nextString());
+        } catch (NumberFormatException e) {
+            throw new MalformedResponseException(e);
+        }
+    }
+}
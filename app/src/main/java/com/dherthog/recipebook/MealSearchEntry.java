@@ -0,0 +1,84 @@
+package com.dherthog.recipebook;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+
+/**
+ * A full-text index entry for a meal the application has downloaded. Meals only seen in a category
+ * listing are indexed by name and category until their Instructions are downloaded.
+ */
+@Fts4(notIndexed = {"imageUrl"})
+@Entity(tableName = "meal_search")
+public class MealSearchEntry {
+
+    // Weights of the columns when ranking matches, in the order the columns are declared
+    static final double[] COLUMN_WEIGHTS = {10, 3, 3, 1, 0};
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private final int id; // The id of the Recipe in TMDB
+    @ColumnInfo
+    private final String name, category, area, instructions;
+    @ColumnInfo
+    private final String imageUrl; // The url for the image of the Recipe in TMDB, not indexed
+
+    /**
+     * @param id The ID of the Recipe in the TMDB
+     * @param name The name of the Recipe in the TMDB
+     * @param category The category of the Recipe in the TMDB
+     * @param area The area of the Recipe in the TMDB. This value may be null.
+     * @param instructions The instructions of the Recipe in the TMDB. This value may be null.
+     * @param imageUrl The imageUrl of the Recipe in the TMDB
+     */
+    public MealSearchEntry(int id, String name, String category, String area, String instructions, String imageUrl) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.area = area;
+        this.instructions = instructions;
+        this.imageUrl = imageUrl;
+    }
+
+    /**
+     * @param instructions The downloaded Instructions
+     * @return An entry indexing all of the Instructions' text
+     */
+    static MealSearchEntry from(Instructions instructions) {
+        return new MealSearchEntry(instructions.getId(), instructions.getName(), instructions.getCategory(),
+                instructions.getArea(), instructions.getInstructions(), instructions.getImageUrl());
+    }
+
+    /**
+     * @param recipe A Recipe listed under a category
+     * @return An entry indexing the Recipe's name and category
+     */
+    static MealSearchEntry from(CachedRecipe recipe) {
+        return new MealSearchEntry(recipe.getId(), recipe.getName(), recipe.getCategory(), null, null, recipe.getImageUrl());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getArea() {
+        return area;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+}
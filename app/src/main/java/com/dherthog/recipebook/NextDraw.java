@@ -0,0 +1,46 @@
+package com.dherthog.recipebook;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Runs work right after a View's next frame has been drawn, for work that must not delay a frame
+ * the user is waiting on.
+ */
+final class NextDraw {
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private NextDraw() { }
+
+    /**
+     * Runs an action once the View's window has drawn its next frame. Must be called on the UI
+     * thread.
+     * @param view Any attached or soon to be attached View of the window
+     * @param action The action to run on the UI thread
+     */
+    static void run(View view, Runnable action) {
+        ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn)
+                    return;
+                drawn = true;
+
+                // Listeners can't be removed while the frame is drawing, and the action should run
+                // once the frame is done
+                ViewTreeObserver.OnDrawListener self = this;
+                mainHandler.postAtFrontOfQueue(() -> {
+                    if (view.getViewTreeObserver().isAlive())
+                        view.getViewTreeObserver().removeOnDrawListener(self);
+                    action.run();
+                });
+            }
+        };
+        view.getViewTreeObserver().addOnDrawListener(listener);
+    }
+}
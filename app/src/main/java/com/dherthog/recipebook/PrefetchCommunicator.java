@@ -0,0 +1,21 @@
+package com.dherthog.recipebook;
+
+import java.util.List;
+
+/**
+ * Interface for MainActivity to listen for Recipes becoming visible, so their Instructions can be
+ * loaded before they are selected.
+ */
+public interface PrefetchCommunicator {
+
+    /**
+     * Notifies the ActivityCommunicator which Recipes are currently visible.
+     * @param recipes The visible Recipes, in display order
+     */
+    void recipesVisible(List<Recipe> recipes);
+
+    /**
+     * Notifies the ActivityCommunicator the visible Recipes are no longer displayed.
+     */
+    void recipesHidden();
+}
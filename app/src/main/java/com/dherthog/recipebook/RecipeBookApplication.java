@@ -0,0 +1,19 @@
+package com.dherthog.recipebook;
+
+import android.app.Application;
+
+/**
+ * The application, created before any Activity. Only marks the start of the startup trace; all
+ * initialization is left to MainActivity so it can be ordered around the first frame.
+ */
+public class RecipeBookApplication extends Application {
+
+    /**
+     * Records the creation of the application.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTracer.mark(StartupTracer.Milestone.APPLICATION_CREATED);
+    }
+}
@@ -0,0 +1,311 @@
+package com.dherthog.recipebook;
+
+import android.app.Application;
+import android.os.CancellationSignal;
+import android.util.LruCache;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the data displayed by MainActivity's Fragments, so it survives configuration changes
+ * without another download. The Activity puts the data it loaded here before displaying a
+ * Fragment, and Fragments read it by the key in their arguments. After process death the data is
+ * gone, so it is loaded again from the local cache, which is how restored Fragments find their
+ * data. Must only be used on the UI thread.
+ */
+public class RecipeBookViewModel extends AndroidViewModel {
+
+    // The number of Instructions kept for InstructionsFragments on the back stack
+    private static final int INSTRUCTIONS_ENTRIES = 16;
+    // The most favorites looked up at the same time when the user refreshes them
+    private static final int FAVORITES_REFRESH_CONCURRENCY = 8;
+
+    private final RecipeRepository recipeRepository;
+    private final TaskEngine taskEngine;
+
+    private final MutableLiveData<ArrayList<Pair<String, String>>> categories = new MutableLiveData<>();
+    private boolean categoriesRequested; // True once categories were loaded or put
+    // The Recipes of each category displayed since the Activity was created
+    private final Map<String, MutableLiveData<ArrayList<Recipe>>> recipes = new HashMap<>();
+    private final LruCache<Integer, MutableLiveData<Instructions>> instructions = new LruCache<>(INSTRUCTIONS_ENTRIES);
+    // The laid out steps of instruction texts, keyed by the text and the metrics they were laid
+    // out with
+    private final LruCache<Pair<String, PrecomputedTextCompat.Params>, MutableLiveData<List<CharSequence>>> steps = new LruCache<>(INSTRUCTIONS_ENTRIES);
+    private final MutableLiveData<ArrayList<Recipe>> favorites = new MutableLiveData<>();
+    private final MutableLiveData<ArrayList<Recipe>> searchResults = new MutableLiveData<>(new ArrayList<>());
+
+    private final MutableLiveData<FavoritesRefresher.Progress> refreshProgress = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> refreshing = new MutableLiveData<>(false);
+    private CancellationSignal refreshSignal; // Cancels the running refresh, null if none is running
+
+    // Loads started by the ViewModel, cancelled once it is cleared
+    private final List<TaskHandle<?>> tasks = new ArrayList<>();
+
+    /**
+     * @param application The application, used to reach the repositories
+     */
+    public RecipeBookViewModel(@NonNull Application application) {
+        super(application);
+        recipeRepository = RecipeRepository.getInstance(application);
+        taskEngine = TaskEngine.getInstance();
+    }
+
+    /**
+     * @return True if the categories are held in memory
+     */
+    boolean hasCategories() {
+        return categories.getValue() != null;
+    }
+
+    /**
+     * @return The categories, loaded from the cache if they are not held yet
+     */
+    LiveData<ArrayList<Pair<String, String>>> getCategories() {
+        if (!categoriesRequested) {
+            categoriesRequested = true;
+            load(categories, recipeRepository::getCategories);
+        }
+        return categories;
+    }
+
+    /**
+     * @param loaded The categories loaded by the Activity
+     */
+    void setCategories(ArrayList<Pair<String, String>> loaded) {
+        categoriesRequested = true;
+        categories.setValue(loaded);
+    }
+
+    /**
+     * @param category The name of a category
+     * @return The Recipes of the category, loaded from the cache if they are not held yet
+     */
+    LiveData<ArrayList<Recipe>> getRecipes(String category) {
+        MutableLiveData<ArrayList<Recipe>> data = recipes.get(category);
+        if (data == null) {
+            data = new MutableLiveData<>();
+            recipes.put(category, data);
+            load(data, () -> recipeRepository.getRecipes(category));
+        }
+        return data;
+    }
+
+    /**
+     * @param category The name of a category
+     * @param loaded The Recipes of the category loaded by the Activity
+     */
+    void setRecipes(String category, ArrayList<Recipe> loaded) {
+        MutableLiveData<ArrayList<Recipe>> data = recipes.get(category);
+        if (data == null) {
+            recipes.put(category, new MutableLiveData<>(loaded));
+            return;
+        }
+        data.setValue(loaded);
+    }
+
+    /**
+     * @param id The id of a Recipe
+     * @return The Instructions of the Recipe, loaded from the cache or the stored favorite if they
+     *         are not held yet
+     */
+    LiveData<Instructions> getInstructions(int id) {
+        MutableLiveData<Instructions> data = instructions.get(id);
+        if (data != null)
+            return data;
+
+        MutableLiveData<Instructions> loading = new MutableLiveData<>();
+        instructions.put(id, loading);
+        track(taskEngine.io(() -> recipeRepository.getInstructions(id), result -> {
+            if (result.isSuccess()) {
+                loading.setValue(result.getValue());
+                return;
+            }
+
+            // Favorites are stored apart from the cache
+            track(FavoritesRepository.getInstance(getApplication()).getInstructions(id, stored -> {
+                if (stored != null)
+                    loading.setValue(stored);
+            }));
+        }));
+        return loading;
+    }
+
+    /**
+     * @param loaded The Instructions loaded by the Activity
+     */
+    void setInstructions(Instructions loaded) {
+        MutableLiveData<Instructions> data = instructions.get(loaded.getId());
+        if (data == null) {
+            instructions.put(loaded.getId(), new MutableLiveData<>(loaded));
+            return;
+        }
+        data.setValue(loaded);
+    }
+
+    /**
+     * Splits the instruction text into steps and lays them out on the cpu pool, unless they are
+     * already laid out with the same metrics.
+     * @param instructions The Instructions whose steps to display
+     * @param params The text metrics of the TextView displaying a step
+     * @return The laid out steps, in order
+     */
+    LiveData<List<CharSequence>> getSteps(Instructions instructions, PrecomputedTextCompat.Params params) {
+        String text = instructions.getInstructions() != null ? instructions.getInstructions() : "";
+        Pair<String, PrecomputedTextCompat.Params> key = Pair.create(text, params);
+        MutableLiveData<List<CharSequence>> data = steps.get(key);
+        if (data != null)
+            return data;
+
+        MutableLiveData<List<CharSequence>> laidOut = new MutableLiveData<>();
+        steps.put(key, laidOut);
+        track(taskEngine.cpu(
+                () -> InstructionSteps.precompute(InstructionSteps.split(text), params),
+                new TaskEngine.Callback<List<CharSequence>>() {
+                    @Override
+                    public void onResult(List<CharSequence> precomputed) {
+                        laidOut.setValue(precomputed);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // Display the steps anyway, measured on the UI thread
+                        laidOut.setValue(new ArrayList<>(InstructionSteps.split(text)));
+                    }
+                }));
+        return laidOut;
+    }
+
+    /**
+     * @return The favorited Recipes, loaded from the database if they are not held yet
+     */
+    LiveData<ArrayList<Recipe>> getFavorites() {
+        if (favorites.getValue() == null)
+            loadFavorites();
+        return favorites;
+    }
+
+    /**
+     * @param loaded The favorited Recipes loaded by the Activity
+     */
+    void setFavorites(ArrayList<Recipe> loaded) {
+        favorites.setValue(loaded);
+    }
+
+    /**
+     * @return The results of the latest search
+     */
+    LiveData<ArrayList<Recipe>> getSearchResults() {
+        return searchResults;
+    }
+
+    /**
+     * @param results The results of the latest search, best match first
+     */
+    void setSearchResults(ArrayList<Recipe> results) {
+        searchResults.setValue(results);
+    }
+
+    /**
+     * @return The progress of the latest refresh of the favorites, null before the first one
+     */
+    LiveData<FavoritesRefresher.Progress> getRefreshProgress() {
+        return refreshProgress;
+    }
+
+    /**
+     * @return True while the favorites are being refreshed
+     */
+    LiveData<Boolean> isRefreshing() {
+        return refreshing;
+    }
+
+    /**
+     * Refreshes every favorite from TMDB and reloads the favorites once done. The refresh keeps
+     * running through configuration changes. Does nothing if a refresh is already running.
+     */
+    void refreshFavorites() {
+        if (refreshSignal != null)
+            return;
+
+        CancellationSignal signal = new CancellationSignal();
+        refreshSignal = signal;
+        refreshing.setValue(true);
+        FavoritesRefresher refresher = new FavoritesRefresher(recipeRepository, RecipeDatabase.getInstance(getApplication()), FAVORITES_REFRESH_CONCURRENCY);
+        // The refresh waits on its own lookups for seconds, so it must not hold an io thread
+        track(taskEngine.longRunning(
+                () -> refresher.refresh(signal, refreshProgress::postValue),
+                new TaskEngine.Callback<FavoritesRefresher.Progress>() {
+                    @Override
+                    public void onResult(FavoritesRefresher.Progress progress) {
+                        refreshSignal = null;
+                        refreshProgress.setValue(progress);
+                        refreshing.setValue(false);
+
+                        // Display the refreshed names and images
+                        loadFavorites();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        refreshSignal = null;
+                        refreshing.setValue(false);
+                    }
+                }));
+    }
+
+    /**
+     * Cancels the loads and the refresh once the Activity is finished for good.
+     */
+    @Override
+    protected void onCleared() {
+        if (refreshSignal != null)
+            refreshSignal.cancel();
+        for (TaskHandle<?> task : tasks)
+            task.cancel();
+        tasks.clear();
+    }
+
+    /**
+     * Reloads the favorited Recipes from the database.
+     */
+    private void loadFavorites() {
+        track(FavoritesRepository.getInstance(getApplication()).getAll(favorites::setValue));
+    }
+
+    /**
+     * Loads data from the RecipeRepository into a LiveData. A failed load leaves it empty.
+     * @param data The LiveData receiving the data
+     * @param work The load
+     * @param <T> The type of the data
+     */
+    private <T> void load(MutableLiveData<T> data, TaskEngine.Work<LoadResult<T>> work) {
+        track(taskEngine.io(work, result -> {
+            if (result.isSuccess())
+                data.setValue(result.getValue());
+        }));
+    }
+
+    /**
+     * Keeps a task to cancel once the ViewModel is cleared, dropping the finished ones.
+     * @param task The task
+     */
+    private void track(TaskHandle<?> task) {
+        Iterator<TaskHandle<?>> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFinished())
+                iterator.remove();
+        }
+        tasks.add(task);
+    }
+}
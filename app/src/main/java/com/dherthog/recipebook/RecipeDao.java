@@ -3,7 +3,9 @@ package com.dherthog.recipebook;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Update;
 
 import java.util.List;
 
@@ -27,6 +29,13 @@ interface RecipeDao {
     @Delete
     void delete(Recipe recipes);
 
+    /**
+     * Updates the name and image of the given favorited Recipes.
+     * @param recipes The Recipes to update
+     */
+    @Update
+    void update(List<Recipe> recipes);
+
     /**
      * Returns an ArrayList of favorited Recipes.
      */
@@ -38,4 +47,55 @@ interface RecipeDao {
      */
     @Query("SELECT * FROM recipe WHERE id = :id")
     List<Recipe> getRecipeByID(int id);
+
+    /**
+     * Returns the favorited Recipes among the given IDs.
+     */
+    @Query("SELECT * FROM recipe WHERE id IN (:ids)")
+    List<Recipe> getRecipes(List<Integer> ids);
+
+    /**
+     * Returns true if a Recipe with the given ID is favorited.
+     */
+    @Query("SELECT EXISTS(SELECT 1 FROM recipe WHERE id = :id)")
+    boolean isFavorite(int id);
+
+    /**
+     * Returns the IDs of all favorited Recipes.
+     */
+    @Query("SELECT id FROM recipe")
+    List<Integer> getAllIds();
+
+    /**
+     * Stores the complete Instructions of a favorited Recipe, replacing any stored before.
+     * @param instructions The Instructions to store
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertInstructions(FavoriteInstructions instructions);
+
+    /**
+     * Stores the complete Instructions of several favorited Recipes, replacing any stored before.
+     * @param instructions The Instructions to store
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertInstructions(List<FavoriteInstructions> instructions);
+
+    /**
+     * Deletes the stored Instructions of a Recipe.
+     * @param id The ID of the Recipe
+     */
+    @Query("DELETE FROM favorite_instructions WHERE id = :id")
+    void deleteInstructions(int id);
+
+    /**
+     * Returns the stored Instructions of a favorited Recipe, or null if none are stored.
+     */
+    @Query("SELECT * FROM favorite_instructions WHERE id = :id")
+    FavoriteInstructions getInstructions(int id);
+
+    /**
+     * Returns the stored Instructions of the given favorited Recipes that have them.
+     */
+    @Query("SELECT * FROM favorite_instructions WHERE id IN (:ids)")
+    List<FavoriteInstructions> getInstructions(List<Integer> ids);
 }
@@ -1,17 +1,99 @@
 package com.dherthog.recipebook;
 
+import android.content.Context;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
+import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /**
- * A representation of a database to keep track of user's favorited Recipes.
+ * A representation of a database to keep track of user's favorited Recipes and the data cached
+ * from TMDB.
  */
-@Database(entities = {Recipe.class}, version = 1)
+@Database(entities = {Recipe.class, CachedCategory.class, CachedRecipe.class, CachedInstructions.class,
+        MealSearchEntry.class, FavoriteInstructions.class}, version = 4)
+@TypeConverters(IngredientsConverter.class)
 public abstract class RecipeDatabase extends RoomDatabase {
 
+    private static RecipeDatabase instance;
+
+    /**
+     * Adds the tables caching data downloaded from TMDB.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_category` (`title` TEXT NOT NULL, "
+                    + "`imageUrl` TEXT, `position` INTEGER NOT NULL, `fetchedAt` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`title`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_recipe` (`category` TEXT NOT NULL, "
+                    + "`id` INTEGER NOT NULL, `name` TEXT, `imageUrl` TEXT, `position` INTEGER NOT NULL, "
+                    + "`fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`category`, `id`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_instructions` (`id` INTEGER NOT NULL, "
+                    + "`name` TEXT, `category` TEXT, `area` TEXT, `imageUrl` TEXT, `instructions` TEXT, "
+                    + "`fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+        }
+    };
+
+    /**
+     * Adds the full-text search index and fills it from the cache, preferring the full
+     * Instructions over a category listing when a meal has both.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `meal_search` USING FTS4(`name` TEXT, "
+                    + "`category` TEXT, `area` TEXT, `instructions` TEXT, `imageUrl` TEXT, notindexed=`imageUrl`)");
+            database.execSQL("INSERT INTO `meal_search` (`rowid`, `name`, `category`, `area`, `instructions`, `imageUrl`) "
+                    + "SELECT `id`, `name`, `category`, `area`, `instructions`, `imageUrl` FROM `cached_instructions`");
+            database.execSQL("INSERT INTO `meal_search` (`rowid`, `name`, `category`, `imageUrl`) "
+                    + "SELECT `id`, `name`, `category`, `imageUrl` FROM `cached_recipe` "
+                    + "WHERE `id` NOT IN (SELECT `id` FROM `cached_instructions`) GROUP BY `id`");
+        }
+    };
+
+    /**
+     * Adds the complete Instructions of favorites and the ingredients of cached Instructions. The
+     * cached Instructions are marked stale so they are downloaded again with their ingredients.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `favorite_instructions` (`id` INTEGER NOT NULL, "
+                    + "`name` TEXT, `category` TEXT, `area` TEXT, `imageUrl` TEXT, `instructions` TEXT, "
+                    + "`ingredients` TEXT, PRIMARY KEY(`id`))");
+            database.execSQL("ALTER TABLE `cached_instructions` ADD COLUMN `ingredients` TEXT");
+            database.execSQL("UPDATE `cached_instructions` SET `fetchedAt` = 0");
+        }
+    };
+
+    /**
+     * Get's the shared database, creating it if necessary.
+     * @param context Any Context of the application
+     * @return The RecipeDatabase instance
+     */
+    static synchronized RecipeDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = Room.databaseBuilder(context.getApplicationContext(), RecipeDatabase.class, "recipeDB")
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
+                    .build();
+        }
+        return instance;
+    }
+
     /**
      * Get's the DAO for a Recipe.
      * @return A RecipeDao instance
      */
     public abstract RecipeDao getRecipeDAO();
+
+    /**
+     * Get's the DAO for data cached from TMDB.
+     * @return A CacheDao instance
+     */
+    public abstract CacheDao getCacheDAO();
 }
@@ -0,0 +1,89 @@
+package com.dherthog.recipebook;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A RecyclerView adapter displaying Recipes. Recipes are identified by their meal id, and updated
+ * lists are diffed off the UI thread so only changed rows are rebound.
+ */
+class RecipeListAdapter extends ListAdapter<Recipe, ListItemViewHolder> implements ImagePrefetcher.ImageSource {
+
+    /**
+     * Recipes are the same item if they have the same id, and unchanged if their displayed fields
+     * are equal.
+     */
+    private static final DiffUtil.ItemCallback<Recipe> DIFF_CALLBACK = new DiffUtil.ItemCallback<Recipe>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Recipe oldItem, @NonNull Recipe newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Recipe oldItem, @NonNull Recipe newItem) {
+            return equals(oldItem.getName(), newItem.getName()) && equals(oldItem.getImageUrl(), newItem.getImageUrl());
+        }
+
+        private boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    };
+
+    private final RecipeSelectedCommunicator recipeSelectedCommunicator;
+
+    /**
+     * @param recipeSelectedCommunicator The observer of item clicks
+     */
+    RecipeListAdapter(RecipeSelectedCommunicator recipeSelectedCommunicator) {
+        super(DIFF_CALLBACK);
+        this.recipeSelectedCommunicator = recipeSelectedCommunicator;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public ListItemViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return ListItemViewHolder.create(parent);
+    }
+
+    /**
+     * Sets the name, image and click listener of the Recipe at the given position.
+     * @param holder The ViewHolder to bind
+     * @param position The position of the Recipe in the list
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ListItemViewHolder holder, int position) {
+        Recipe recipe = getItem(position);
+        // Holders are shared with the other lists, so the binding adapter sets the listener
+        holder.itemView.setOnClickListener(v -> {
+            int clicked = holder.getBindingAdapterPosition();
+            if (clicked != RecyclerView.NO_POSITION)
+                recipeSelectedCommunicator.recipeSelected(getItem(clicked).getId());
+        });
+        holder.tvTitle.setText(recipe.getName());
+        ImageLoader.getInstance(holder.itemView.getContext()).loadThumbnail(holder.ivImage, recipe.getImageUrl());
+    }
+
+    @Override
+    public String getImageUrl(int position) {
+        return getItem(position).getImageUrl();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return ListItemViewHolder.VIEW_TYPE;
+    }
+
+    /**
+     * @param position The position of a Recipe in the list
+     * @return The meal id of the Recipe
+     */
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+}
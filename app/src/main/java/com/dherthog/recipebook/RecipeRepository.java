@@ -0,0 +1,541 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.util.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The source of all data downloaded from TMDB. Serves categories, Recipe listings and Instructions
+ * from the local cache when possible and refreshes stale entries in the background
+ * (stale-while-revalidate). Each load picks a CachePolicy from the ConnectivityMonitor's state and
+ * the age of the cached data. All methods block and must be called off the UI thread.
+ */
+class RecipeRepository {
+
+    // How long downloaded data is considered fresh
+    static final long CATEGORIES_TTL = TimeUnit.DAYS.toMillis(1);
+    static final long RECIPES_TTL = TimeUnit.HOURS.toMillis(12);
+    static final long INSTRUCTIONS_TTL = TimeUnit.DAYS.toMillis(7);
+    // Data older than this many TTLs has expired and is only shown if it can't be downloaded
+    static final int EXPIRY_TTLS = 7;
+
+    // The number of bytes of Instructions kept in memory
+    private static final int INSTRUCTIONS_CACHE_BYTES = 512 * 1024;
+    // The number of bytes of api responses kept on disk for revalidation
+    private static final long HTTP_CACHE_BYTES = 4 * 1024 * 1024;
+
+    // The most results a local search returns
+    static final int MAX_SEARCH_RESULTS = 50;
+    // The number of queries whose search.php results are kept in memory
+    private static final int SEARCH_CACHE_QUERIES = 64;
+
+    private static RecipeRepository instance;
+
+    private final HttpTransport httpTransport;
+    private final CacheDao cacheDao;
+    private final ConnectivityMonitor connectivityMonitor;
+    private final InstructionsCache instructionsCache = new InstructionsCache(INSTRUCTIONS_CACHE_BYTES);
+    private final SearchResultCache searchResultCache = new SearchResultCache(SEARCH_CACHE_QUERIES);
+    // Shares downloads between concurrent callers
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    // Runs background refreshes of stale cache entries
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+    // Keys of the refreshes currently queued or running
+    private final Set<String> pendingRefreshes = new HashSet<>();
+
+    /**
+     * @param context Any Context of the application
+     * @return The shared RecipeRepository
+     */
+    static synchronized RecipeRepository getInstance(Context context) {
+        if (instance == null) {
+            HttpTransport httpTransport = HttpTransport.getInstance();
+            httpTransport.setCache(new HttpCache(new File(context.getCacheDir(), "api-cache"), HTTP_CACHE_BYTES));
+            instance = new RecipeRepository(httpTransport, RecipeDatabase.getInstance(context).getCacheDAO(), ConnectivityMonitor.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * @param httpTransport The transport used for api calls
+     * @param cacheDao The Dao of the local cache
+     * @param connectivityMonitor The source of the network state
+     */
+    RecipeRepository(HttpTransport httpTransport, CacheDao cacheDao, ConnectivityMonitor connectivityMonitor) {
+        this.httpTransport = httpTransport;
+        this.cacheDao = cacheDao;
+        this.connectivityMonitor = connectivityMonitor;
+    }
+
+    /**
+     * Gets the recipe categories.
+     * @return An ArrayList of category-image URL pairs, or the Error that kept them from loading
+     */
+    LoadResult<ArrayList<Pair<String, String>>> getCategories() {
+        List<CachedCategory> cached = cacheDao.getCategories();
+        long fetchedAt = cached.isEmpty() ? 0 : cached.get(0).getFetchedAt();
+        CachePolicy policy = choosePolicy(!cached.isEmpty(), fetchedAt, CATEGORIES_TTL);
+
+        if (policy == CachePolicy.NETWORK_FIRST) {
+            try {
+                return LoadResult.success(downloadCategories());
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (cached.isEmpty())
+                    return LoadResult.failure(e);
+            }
+        } else if (cached.isEmpty()) {
+            return LoadResult.failure(LoadResult.Error.OFFLINE);
+        } else if (policy == CachePolicy.CACHE_FIRST && shouldRefresh(fetchedAt, CATEGORIES_TTL)) {
+            refreshInBackground("categories", this::downloadCategories);
+        }
+
+        ArrayList<Pair<String, String>> categories = new ArrayList<>();
+        for (CachedCategory category : cached)
+            categories.add(category.toPair());
+        return LoadResult.success(categories);
+    }
+
+    /**
+     * Gets the Recipes listed under a category.
+     * @param category The name of the category
+     * @return An ArrayList of Recipes, or the Error that kept them from loading
+     */
+    LoadResult<ArrayList<Recipe>> getRecipes(String category) {
+        List<CachedRecipe> cached = cacheDao.getRecipes(category);
+        long fetchedAt = cached.isEmpty() ? 0 : cached.get(0).getFetchedAt();
+        CachePolicy policy = choosePolicy(!cached.isEmpty(), fetchedAt, RECIPES_TTL);
+
+        if (policy == CachePolicy.NETWORK_FIRST) {
+            try {
+                return LoadResult.success(downloadRecipes(category));
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (cached.isEmpty())
+                    return LoadResult.failure(e);
+            }
+        } else if (cached.isEmpty()) {
+            return LoadResult.failure(LoadResult.Error.OFFLINE);
+        } else if (policy == CachePolicy.CACHE_FIRST && shouldRefresh(fetchedAt, RECIPES_TTL)) {
+            refreshInBackground("recipes:" + category, () -> downloadRecipes(category));
+        }
+
+        ArrayList<Recipe> recipes = new ArrayList<>();
+        for (CachedRecipe recipe : cached)
+            recipes.add(recipe.toRecipe());
+        return LoadResult.success(recipes);
+    }
+
+    /**
+     * Gets the Instructions of a Recipe.
+     * @param id The id of the Recipe
+     * @return The Instructions, or the Error that kept them from loading
+     */
+    LoadResult<Instructions> getInstructions(int id) {
+        // Recently opened Instructions are served from memory
+        Instructions instructions = instructionsCache.get(id);
+        if (instructions != null)
+            return LoadResult.success(instructions);
+
+        CachedInstructions cached = cacheDao.getInstructions(id);
+        long fetchedAt = cached == null ? 0 : cached.getFetchedAt();
+        CachePolicy policy = choosePolicy(cached != null, fetchedAt, INSTRUCTIONS_TTL);
+
+        if (policy == CachePolicy.NETWORK_FIRST) {
+            try {
+                instructions = downloadInstructions(id);
+                if (instructions != null)
+                    return LoadResult.success(instructions);
+                // TMDB answers unknown ids with an empty list of meals
+                if (cached == null)
+                    return LoadResult.failure(LoadResult.Error.NOT_FOUND);
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (cached == null)
+                    return LoadResult.failure(e);
+            }
+        } else if (cached == null) {
+            return LoadResult.failure(LoadResult.Error.OFFLINE);
+        } else if (policy == CachePolicy.CACHE_FIRST && shouldRefresh(fetchedAt, INSTRUCTIONS_TTL)) {
+            refreshInBackground("instructions:" + id, () -> downloadInstructions(id));
+        }
+
+        instructions = cached.toInstructions();
+        instructionsCache.put(id, instructions);
+        return LoadResult.success(instructions);
+    }
+
+    /**
+     * Searches the meals downloaded so far by name, category, area and instructions. Every word of
+     * the query is matched as a prefix, and matches in the name rank above matches in the text.
+     * @param query The text entered by the user
+     * @return Up to MAX_SEARCH_RESULTS matching Recipes, best match first
+     */
+    ArrayList<Recipe> searchLocal(String query) {
+        ArrayList<Recipe> recipes = new ArrayList<>();
+        String match = toMatchQuery(query);
+        if (match.isEmpty())
+            return recipes;
+
+        List<SearchMatch> matches = cacheDao.search(match);
+        double[] scores = new double[matches.size()];
+        Integer[] order = new Integer[matches.size()];
+        for (int i = 0; i < matches.size(); i++) {
+            scores[i] = matches.get(i).score(MealSearchEntry.COLUMN_WEIGHTS);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        for (int i = 0; i < order.length && i < MAX_SEARCH_RESULTS; i++)
+            recipes.add(matches.get(order[i]).toRecipe());
+        return recipes;
+    }
+
+    /**
+     * Searches TMDB for meals whose name contains the query. Repeated queries, and queries
+     * extending one that matched nothing, are answered from the SearchResultCache without a
+     * download.
+     * @param query The text entered by the user
+     * @return The matching Recipes, empty if there are none or they could not be downloaded
+     */
+    ArrayList<Recipe> searchRemote(String query) {
+        String normalized = SearchResultCache.normalize(query);
+        if (normalized.isEmpty())
+            return new ArrayList<>();
+
+        ArrayList<Recipe> cached = searchResultCache.find(normalized);
+        if (cached != null)
+            return cached;
+
+        if (!connectivityMonitor.isOnline())
+            return new ArrayList<>();
+
+        try {
+            return requestCoalescer.execute(key(Endpoint.SEARCH, normalized), () -> fetchSearch(normalized));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Downloads the categories and refreshes the cache with them, regardless of their age.
+     * @throws IOException If the categories could not be downloaded
+     */
+    void syncCategories() throws IOException {
+        downloadCategories();
+    }
+
+    /**
+     * Downloads the Instructions of a Recipe regardless of their age and caches them, for callers
+     * such as the FavoritesRefresher that store them in batches of their own.
+     * @param id The id of the Recipe
+     * @return The downloaded Instructions, or null if TMDB has no Recipe with the given id
+     * @throws IOException If the Instructions could not be downloaded
+     */
+    Instructions lookupInstructions(int id) throws IOException {
+        return downloadInstructions(id);
+    }
+
+    /**
+     * Searches both the local index and TMDB. Local matches keep their ranking and come first,
+     * followed by the remote matches that are not cached locally.
+     * @param query The text entered by the user
+     * @return The matching Recipes without duplicates
+     */
+    ArrayList<Recipe> search(String query) {
+        ArrayList<Recipe> results = searchLocal(query);
+        Set<Integer> ids = new HashSet<>();
+        for (Recipe recipe : results)
+            ids.add(recipe.getId());
+
+        for (Recipe recipe : searchRemote(query)) {
+            if (ids.add(recipe.getId()))
+                results.add(recipe);
+        }
+        return results;
+    }
+
+    /**
+     * Turns user input into an FTS query matching every word as a prefix. Punctuation is dropped so
+     * the input can't form FTS operators.
+     * @param query The text entered by the user
+     * @return The FTS query, empty if the input has no words
+     */
+    static String toMatchQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String token : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty())
+                continue;
+            if (match.length() > 0)
+                match.append(' ');
+            match.append(token).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * @return The in-memory cache of Instructions, for reading its hit, miss and eviction counters
+     */
+    InstructionsCache getInstructionsCache() {
+        return instructionsCache;
+    }
+
+    /**
+     * Downloads the categories and replaces the cached categories with them. Shares the download
+     * with concurrent callers.
+     * @return The downloaded categories
+     * @throws IOException If the categories could not be downloaded
+     */
+    private ArrayList<Pair<String, String>> downloadCategories() throws IOException {
+        return requestCoalescer.execute(key(Endpoint.CATEGORIES, null), this::fetchCategories);
+    }
+
+    /**
+     * Performs the download of the categories. Unchanged categories are only marked fresh instead
+     * of being rewritten, and are not even decoded if the response itself is unchanged.
+     * @return The downloaded categories
+     * @throws IOException If the categories could not be downloaded
+     */
+    private ArrayList<Pair<String, String>> fetchCategories() throws IOException {
+        List<CachedCategory> cached = cacheDao.getCategories();
+        HttpResult<ArrayList<Pair<String, String>>> result = httpTransport.fetch(Endpoint.CATEGORIES, null, MealDbParser::parseCategories, !cached.isEmpty());
+
+        long now = System.currentTimeMillis();
+        if (result.isUnchanged()) {
+            cacheDao.touchCategories(now);
+            ArrayList<Pair<String, String>> categories = new ArrayList<>();
+            for (CachedCategory category : cached)
+                categories.add(category.toPair());
+            return categories;
+        }
+
+        ArrayList<Pair<String, String>> categories = result.getValue();
+        if (!cached.isEmpty() && cachedCategoriesHash(cached) == categoriesHash(categories)) {
+            cacheDao.touchCategories(now);
+            return categories;
+        }
+
+        List<CachedCategory> rows = new ArrayList<>();
+        for (int i = 0; i < categories.size(); i++)
+            rows.add(new CachedCategory(categories.get(i).first, categories.get(i).second, i, now));
+        cacheDao.replaceCategories(rows);
+
+        return categories;
+    }
+
+    /**
+     * @param categories Cached categories in display order
+     * @return A hash of the categories' titles and images
+     */
+    private static long cachedCategoriesHash(List<CachedCategory> categories) {
+        ContentHash hash = new ContentHash();
+        for (CachedCategory category : categories)
+            hash.add(category.getTitle()).add(category.getImageUrl());
+        return hash.get();
+    }
+
+    /**
+     * @param categories Downloaded category title-image URL pairs in display order
+     * @return A hash of the categories' titles and images, equal to the cached hash if unchanged
+     */
+    private static long categoriesHash(List<Pair<String, String>> categories) {
+        ContentHash hash = new ContentHash();
+        for (Pair<String, String> category : categories)
+            hash.add(category.first).add(category.second);
+        return hash.get();
+    }
+
+    /**
+     * Downloads the Recipes of a category and replaces the cached listing with them. Shares the
+     * download with concurrent callers.
+     * @param category The name of the category
+     * @return The downloaded Recipes
+     * @throws IOException If the Recipes could not be downloaded
+     */
+    private ArrayList<Recipe> downloadRecipes(String category) throws IOException {
+        return requestCoalescer.execute(key(Endpoint.FILTER, category), () -> fetchRecipes(category));
+    }
+
+    /**
+     * Performs the download of a category's Recipes. An unchanged listing is only marked fresh.
+     * @param category The name of the category
+     * @return The downloaded Recipes
+     * @throws IOException If the Recipes could not be downloaded
+     */
+    private ArrayList<Recipe> fetchRecipes(String category) throws IOException {
+        List<CachedRecipe> cached = cacheDao.getRecipes(category);
+        HttpResult<ArrayList<Recipe>> result = httpTransport.fetch(Endpoint.FILTER, category, MealDbParser::parseRecipes, !cached.isEmpty());
+
+        long now = System.currentTimeMillis();
+        if (result.isUnchanged()) {
+            cacheDao.touchRecipes(category, now);
+            ArrayList<Recipe> recipes = new ArrayList<>();
+            for (CachedRecipe recipe : cached)
+                recipes.add(recipe.toRecipe());
+            return recipes;
+        }
+
+        ArrayList<Recipe> recipes = result.getValue();
+        List<CachedRecipe> rows = new ArrayList<>();
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe recipe = recipes.get(i);
+            rows.add(new CachedRecipe(category, recipe.getId(), recipe.getName(), recipe.getImageUrl(), i, now));
+        }
+        cacheDao.replaceRecipes(category, rows);
+
+        return recipes;
+    }
+
+    /**
+     * Downloads the Instructions of a Recipe and caches them. Shares the download with concurrent
+     * callers.
+     * @param id The id of the Recipe
+     * @return The downloaded Instructions, or null if TMDB has no Recipe with the given id
+     * @throws IOException If the Instructions could not be downloaded
+     */
+    private Instructions downloadInstructions(int id) throws IOException {
+        return requestCoalescer.execute(key(Endpoint.LOOKUP, String.valueOf(id)), () -> fetchInstructions(id));
+    }
+
+    /**
+     * Performs the download of a Recipe's Instructions. Unchanged Instructions are only marked
+     * fresh. Every lookup.php download goes through here, so the cached row always holds the body
+     * the HttpCache revalidates and may be returned as unchanged.
+     * @param id The id of the Recipe
+     * @return The downloaded Instructions, or null if TMDB has no Recipe with the given id
+     * @throws IOException If the Instructions could not be downloaded
+     */
+    private Instructions fetchInstructions(int id) throws IOException {
+        CachedInstructions cached = cacheDao.getInstructions(id);
+        HttpResult<Instructions> result = httpTransport.fetch(Endpoint.LOOKUP, String.valueOf(id), MealDbParser::parseInstructions, cached != null);
+
+        if (result.isUnchanged()) {
+            cacheDao.touchInstructions(id, System.currentTimeMillis());
+            Instructions instructions = cached.toInstructions();
+            instructionsCache.put(id, instructions);
+            return instructions;
+        }
+
+        Instructions instructions = result.getValue();
+
+        if (instructions != null) {
+            cacheDao.cacheInstructions(CachedInstructions.from(instructions, System.currentTimeMillis()));
+            instructionsCache.put(id, instructions);
+        }
+
+        return instructions;
+    }
+
+    /**
+     * Performs a search.php download. The matched meals come with their Instructions, which are
+     * cached and indexed so opening a result needs no further download.
+     * @param query The normalized query
+     * @return The matching Recipes
+     * @throws IOException If the results could not be downloaded
+     */
+    private ArrayList<Recipe> fetchSearch(String query) throws IOException {
+        ArrayList<Instructions> meals = httpTransport.get(Endpoint.SEARCH, query, MealDbParser::parseMeals);
+
+        long now = System.currentTimeMillis();
+        ArrayList<Recipe> recipes = new ArrayList<>();
+        List<CachedInstructions> rows = new ArrayList<>();
+        for (Instructions meal : meals) {
+            recipes.add(new Recipe(meal.getId(), meal.getName(), meal.getImageUrl()));
+            rows.add(CachedInstructions.from(meal, now));
+            instructionsCache.put(meal.getId(), meal);
+        }
+        cacheDao.cacheInstructions(rows);
+        searchResultCache.put(query, recipes);
+
+        return recipes;
+    }
+
+    /**
+     * @param endpoint The Endpoint of a request
+     * @param parameter The parameter of the request. This value may be null.
+     * @return A key identifying the request
+     */
+    private static String key(Endpoint endpoint, String parameter) {
+        return endpoint.name() + ":" + parameter;
+    }
+
+    /**
+     * @param fetchedAt When the data was downloaded, in milliseconds since epoch
+     * @param ttl How long the data is fresh, in milliseconds
+     * @return True if the data should be downloaded again
+     */
+    private static boolean isStale(long fetchedAt, long ttl) {
+        return System.currentTimeMillis() - fetchedAt > ttl;
+    }
+
+    /**
+     * Picks how a load balances the cache against the network. Offline only the cache is used,
+     * and expired or missing data is downloaded before anything is shown.
+     * @param cached True if the data is cached
+     * @param fetchedAt When the cached data was downloaded, in milliseconds since epoch
+     * @param ttl How long the data is fresh, in milliseconds
+     * @return The CachePolicy of the load
+     */
+    private CachePolicy choosePolicy(boolean cached, long fetchedAt, long ttl) {
+        if (!connectivityMonitor.isOnline())
+            return CachePolicy.CACHE_ONLY;
+        if (!cached || isStale(fetchedAt, ttl * EXPIRY_TTLS))
+            return CachePolicy.NETWORK_FIRST;
+        return CachePolicy.CACHE_FIRST;
+    }
+
+    /**
+     * @param fetchedAt When the cached data was downloaded, in milliseconds since epoch
+     * @param ttl How long the data is fresh, in milliseconds
+     * @return True if stale data should be refreshed in the background. On metered networks stale
+     *         data is kept until it expires.
+     */
+    private boolean shouldRefresh(long fetchedAt, long ttl) {
+        return isStale(fetchedAt, ttl) && !connectivityMonitor.isMetered();
+    }
+
+    /**
+     * Queues a download that refreshes a stale cache entry, unless one is already queued.
+     * @param key Identifies the refreshed cache entry
+     * @param download The download to perform
+     */
+    private void refreshInBackground(String key, Download download) {
+        synchronized (pendingRefreshes) {
+            if (!pendingRefreshes.add(key))
+                return;
+        }
+
+        refreshExecutor.execute(() -> {
+            try {
+                download.run();
+            } catch (IOException e) {
+                // The stale entry stays in the cache and is refreshed on a later visit
+                e.printStackTrace();
+            } finally {
+                synchronized (pendingRefreshes) {
+                    pendingRefreshes.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * A download that updates the cache.
+     */
+    private interface Download {
+        void run() throws IOException;
+    }
+}
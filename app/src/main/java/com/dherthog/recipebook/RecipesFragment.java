@@ -5,28 +5,33 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
-import android.widget.ImageView;
-import android.widget.ListView;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.squareup.picasso.Picasso;
-
-import java.util.ArrayList;
+import java.util.List;
 
 /**
- * A Fragment to display Recipes.
+ * A Fragment to display the Recipes of a category. The Recipes are read from the
+ * RecipeBookViewModel by the category in the Fragment's arguments, so the Fragment can be
+ * recreated by the framework.
  */
 public class RecipesFragment extends Fragment {
 
-    private final RecipeSelectedCommunicator recipeSelectedCommunicator;
-    private final ArrayList<Recipe> recipes;
+    // The number of rows whose images are decoded ahead of scrolling
+    private static final int IMAGE_PREFETCH_ROWS = 4;
+    private static final String ARG_CATEGORY = "category";
+
+    private RecipeSelectedCommunicator recipeSelectedCommunicator;
+    private PrefetchCommunicator prefetchCommunicator;
+    private RecyclerView.RecycledViewPool listItemViewPool; // Shared by all lists of list_item
     private View rootView; // The root View of the Fragment
+    private RecipeListAdapter adapter;
+    private ImagePrefetcher imagePrefetcher;
 
     /**
      * Called to have the fragment instantiate it's View.
@@ -47,7 +52,7 @@ public class RecipesFragment extends Fragment {
     }
 
     /**
-     * Instantiates the ListView to display Recipes.
+     * Instantiates the list to display Recipes.
      * @param view The root View of the fragment
      * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous
      *                           saved state as given here
@@ -60,78 +65,91 @@ public class RecipesFragment extends Fragment {
     }
 
     /**
-     * Constructor for passing a RecipeSelectedCommunicator and Recipes to display.
-     * @param recipeSelectedCommunicator The observer of ListView clicks.
-     * @param recipes An ArrayList of category-image URL pairs
+     * Stops prefetching for the Recipes that were visible.
      */
-    public RecipesFragment(RecipeSelectedCommunicator recipeSelectedCommunicator, ArrayList<Recipe> recipes) {
-        this.recipeSelectedCommunicator = recipeSelectedCommunicator;
-        this.recipes = recipes;
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        prefetchCommunicator.recipesHidden();
+        imagePrefetcher.cancelAll();
+        adapter = null;
     }
 
     /**
-     * Instantiates the Fragment's ListView to display category data and sets an
-     * OnItemClickedListener for the items in the list.
+     * Creates a RecipesFragment for the Recipes of a category.
+     * @param category The name of the category
+     * @return The RecipesFragment
      */
-    private void setListView() {
-        ListAdapter adapter = new ListAdapter();
-        ListView listView = (ListView) rootView.findViewById(R.id.lv_recipes);
-        listView.setAdapter(adapter);
+    public static RecipesFragment newInstance(String category) {
+        Bundle args = new Bundle();
+        args.putString(ARG_CATEGORY, category);
+        RecipesFragment fragment = new RecipesFragment();
+        fragment.setArguments(args);
+        return fragment;
+    }
 
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+    /**
+     * Gets the observers of list clicks and visible Recipes and the shared pool of list_item Views
+     * from the Activity.
+     * @param context The Activity the Fragment is attached to
+     */
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        recipeSelectedCommunicator = (RecipeSelectedCommunicator) context;
+        prefetchCommunicator = (PrefetchCommunicator) context;
+        listItemViewPool = ((ViewPoolProvider) context).getListItemViewPool();
+    }
+
+    /**
+     * Instantiates the Fragment's RecyclerView to display Recipe data. Selection of a Recipe is
+     * reported by the RecipeListAdapter.
+     */
+    private void setListView() {
+        adapter = new RecipeListAdapter(recipeSelectedCommunicator);
+        RecyclerView recyclerView = rootView.findViewById(R.id.rv_recipes);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(rootView.getContext());
+        // Return the ViewHolders to the shared pool when the Fragment's View is destroyed
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(listItemViewPool);
+        recyclerView.setAdapter(adapter);
+
+        // Display the Recipes and report the visible ones once the list is laid out
+        RecipeListAdapter listAdapter = adapter;
+        RecipeBookViewModel viewModel = new ViewModelProvider(requireActivity()).get(RecipeBookViewModel.class);
+        viewModel.getRecipes(requireArguments().getString(ARG_CATEGORY)).observe(getViewLifecycleOwner(),
+                recipes -> listAdapter.submitList(recipes, () -> recyclerView.post(() -> reportVisibleRecipes(layoutManager))));
+
+        // Decode the images of upcoming rows while scrolling
+        imagePrefetcher = new ImagePrefetcher(ImageLoader.getInstance(rootView.getContext()), adapter, true, IMAGE_PREFETCH_ROWS);
+        recyclerView.addOnScrollListener(imagePrefetcher);
+
+        // Report the visible Recipes whenever scrolling stops
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                recipeSelectedCommunicator.recipeSelected(recipes.get(position).getId());
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE)
+                    reportVisibleRecipes(layoutManager);
             }
         });
     }
 
     /**
-     * An ArrayAdapter class to instantiate each item's View.
+     * Notifies the PrefetchCommunicator of the Recipes currently visible in the list.
+     * @param layoutManager The LayoutManager of the list displaying the Recipes
      */
-    private class ListAdapter extends ArrayAdapter<Recipe> {
-
-        /**
-         * Create a new ListViewAdapter.
-         */
-        public ListAdapter() {
-            super(rootView.getContext(), R.layout.list_item);
-        }
-
-        /**
-         * Instantiates a View for a single item in the list of recipes.
-         * @param position The position the the item in the list.
-         * @param convertView This value may be null
-         * @param parent The parent of the newly instantiated View
-         * @return The newly instantiated View
-         */
-        @NonNull
-        @Override
-        public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-            // Get the Recipe to populate the View with
-            Recipe recipe = recipes.get(position);
-
-            // Inflate the convertView if it's not being reused
-            if (convertView == null)
-                convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
-
-            // Get references for the necessary views
-            TextView tvRecipeName = convertView.findViewById(R.id.tv_item_title);
-            ImageView ivRecipeImage = convertView.findViewById(R.id.iv_item);
-
-            // Set the name and image of the Recipe
-            tvRecipeName.setText(recipe.getName());
-            Picasso.with(getContext()).load(recipe.getImageUrl()).fit().into(ivRecipeImage);
-
-            return convertView;
-        }
-
-        /**
-         * @return The number of elements in the list.
-         */
-        @Override
-        public int getCount() {
-            return recipes.size();
-        }
+    private void reportVisibleRecipes(LinearLayoutManager layoutManager) {
+        // The View may have been destroyed before a posted report ran
+        if (adapter == null)
+            return;
+
+        List<Recipe> displayed = adapter.getCurrentList();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = Math.min(layoutManager.findLastVisibleItemPosition(), displayed.size() - 1);
+        if (first == RecyclerView.NO_POSITION || last < first)
+            return;
+
+        prefetchCommunicator.recipesVisible(displayed.subList(first, last + 1));
     }
 }
@@ -0,0 +1,12 @@
+package com.dherthog.recipebook;
+
+/**
+ * Interface for MainActivity to listen for the user asking to refresh the favorites.
+ */
+public interface RefreshCommunicator {
+
+    /**
+     * Notifies the RefreshCommunicator the user asked to refresh every favorite.
+     */
+    void refreshFavorites();
+}
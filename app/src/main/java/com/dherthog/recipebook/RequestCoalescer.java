@@ -0,0 +1,66 @@
+package com.dherthog.recipebook;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Shares one pending request between concurrent callers asking for the same key. The first caller
+ * performs the request and every caller that arrives before it finishes receives the same result.
+ */
+class RequestCoalescer {
+
+    // Requests currently being performed, by key
+    private final Map<String, FutureTask<?>> inFlight = new HashMap<>();
+
+    /**
+     * Performs a request, or waits for an identical request that is already in flight.
+     * @param key Identifies the request, e.g. its endpoint and parameters
+     * @param request The request to perform if none with the same key is in flight
+     * @param <T> The type of the request's result
+     * @return The result of the request
+     * @throws IOException If the shared request failed
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, Callable<T> request) throws IOException {
+        FutureTask<T> task;
+        boolean owner = false;
+        synchronized (inFlight) {
+            task = (FutureTask<T>) inFlight.get(key);
+            if (task == null) {
+                task = new FutureTask<>(request);
+                inFlight.put(key, task);
+                owner = true;
+            }
+        }
+
+        // The first caller performs the request on its own thread
+        if (owner) {
+            try {
+                task.run();
+            } finally {
+                synchronized (inFlight) {
+                    inFlight.remove(key);
+                }
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
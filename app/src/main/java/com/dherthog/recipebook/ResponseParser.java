@@ -0,0 +1,19 @@
+package com.dherthog.recipebook;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the body of a response as it is streamed from the network.
+ * @param <T> The type of the decoded result
+ */
+interface ResponseParser<T> {
+
+    /**
+     * Decodes a response body. The stream is closed by the caller.
+     * @param body The decompressed body of the response
+     * @return The decoded result
+     * @throws IOException If the body could not be read or is malformed
+     */
+    T parse(InputStream body) throws IOException;
+}
@@ -0,0 +1,34 @@
+package com.dherthog.recipebook;
+
+/**
+ * Limits retries and hedged requests to a share of the requests made, so an outage of TheMealDB is
+ * not met with a multiple of the usual traffic. Every request deposits RATIO of a token, and every
+ * retry or hedge withdraws a whole one. Safe for concurrent use.
+ */
+class RetryBudget {
+
+    // The share of requests that may be retried or hedged once the initial tokens are spent
+    static final double RATIO = 0.2;
+    // The most tokens saved up, which is also the burst allowed after a quiet period
+    static final double MAX_TOKENS = 10;
+
+    private double tokens = MAX_TOKENS;
+
+    /**
+     * Records a request made for the first time.
+     */
+    synchronized void deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + RATIO);
+    }
+
+    /**
+     * Takes a token for a retry or hedge.
+     * @return True if the request may be made, false if the budget is spent
+     */
+    synchronized boolean tryWithdraw() {
+        if (tokens < 1)
+            return false;
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.dherthog.recipebook;
+
+/**
+ * Interface for MainActivity to listen for changes to the search query.
+ */
+public interface SearchCommunicator {
+
+    /**
+     * Notifies the SearchCommunicator the search query has changed.
+     * @param query The text entered by the user
+     */
+    void searchQueryChanged(String query);
+}
@@ -0,0 +1,113 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A Fragment to search the meals downloaded from TMDB. The results are read from the
+ * RecipeBookViewModel, so the Fragment can be recreated by the framework.
+ */
+public class SearchFragment extends Fragment {
+
+    private SearchCommunicator searchCommunicator;
+    private RecipeSelectedCommunicator recipeSelectedCommunicator;
+    private RecyclerView.RecycledViewPool listItemViewPool; // Shared by all lists of list_item
+    private View rootView; // The root View of the Fragment
+
+    /**
+     * Gets the observers of the search query and list clicks and the shared pool of list_item
+     * Views from the Activity.
+     * @param context The Activity the Fragment is attached to
+     */
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        searchCommunicator = (SearchCommunicator) context;
+        recipeSelectedCommunicator = (RecipeSelectedCommunicator) context;
+        listItemViewPool = ((ViewPoolProvider) context).getListItemViewPool();
+    }
+
+    /**
+     * Called to have the fragment instantiate it's View.
+     * @param inflater The LayoutInflater object that can be used to inflate any views in the
+     *                 fragment
+     * @param parent If non-null, this is the parent view that the fragment's UI should be attached
+     *               to. The fragment should not add the view itself, but this can be used to
+     *               generate the LayoutParams of the view. This value may be null.
+     * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous
+     *                           saved state as given here
+     * @return Return the View for the fragment's UI, or null
+     */
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState) {
+        // Defines the xml file for the fragment
+        rootView = inflater.inflate(R.layout.fragment_search, parent, false);
+        return rootView;
+    }
+
+    /**
+     * Instantiates the search field and the list of results.
+     * @param view The root View of the fragment
+     * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous
+     *                           saved state as given here
+     */
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        setListView();
+        setSearchField();
+    }
+
+    /**
+     * Reports every change of the search field to the SearchCommunicator. The text restored after
+     * a configuration change is reported as well, which repeats the search from the caches.
+     */
+    private void setSearchField() {
+        EditText etSearch = rootView.findViewById(R.id.et_search);
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchCommunicator.searchQueryChanged(s.toString());
+            }
+        });
+    }
+
+    /**
+     * Instantiates the Fragment's RecyclerView to display the results. Selection of a Recipe is
+     * reported by the RecipeListAdapter.
+     */
+    private void setListView() {
+        RecipeListAdapter adapter = new RecipeListAdapter(recipeSelectedCommunicator);
+        RecyclerView recyclerView = rootView.findViewById(R.id.rv_search_results);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(rootView.getContext());
+        // Return the ViewHolders to the shared pool when the Fragment's View is destroyed
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(listItemViewPool);
+        recyclerView.setAdapter(adapter);
+
+        // Only the rows that changed are rebound for each query
+        RecipeBookViewModel viewModel = new ViewModelProvider(requireActivity()).get(RecipeBookViewModel.class);
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), adapter::submitList);
+    }
+}
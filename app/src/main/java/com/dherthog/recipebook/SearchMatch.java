@@ -0,0 +1,48 @@
+package com.dherthog.recipebook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A row matching a full-text search, with the FTS matchinfo used to rank it.
+ */
+public class SearchMatch {
+
+    public int id;
+    public String name;
+    public String imageUrl;
+    public byte[] matchInfo; // matchinfo(meal_search, 'pcx')
+
+    /**
+     * Scores the match from its matchinfo. For every phrase and column, the share of the phrase's
+     * hits across all rows that fall in this row is weighed by the column's weight, so hits on rare
+     * terms and hits in the name rank highest.
+     * @param columnWeights The weight of each column, in declaration order
+     * @return The score of the match, higher is better
+     */
+    double score(double[] columnWeights) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < columnWeights.length; column++) {
+                int offset = 2 + 3 * (phrase * columns + column);
+                int hitsInRow = info.get(offset);
+                int hitsInAllRows = info.get(offset + 1);
+                if (hitsInRow > 0)
+                    score += columnWeights[column] * hitsInRow / (double) hitsInAllRows;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return The matched Recipe
+     */
+    Recipe toRecipe() {
+        return new Recipe(id, name, imageUrl);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dherthog.recipebook;
+
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * An in-memory cache of search.php results keyed by the normalized query. TMDB documents neither
+ * a cap nor a ranking of its results, so a non-empty result is never assumed to hold every meal
+ * and longer queries are downloaded again. Only a query extending one that matched nothing is
+ * answered from the cache, since no meal can contain the longer query either.
+ */
+class SearchResultCache extends LruCache<String, ArrayList<Recipe>> {
+
+    /**
+     * @param maxQueries The maximum number of queries whose results are kept
+     */
+    SearchResultCache(int maxQueries) {
+        super(maxQueries);
+    }
+
+    /**
+     * Answers a query from its own cached results, or as empty if one of its prefixes matched
+     * nothing.
+     * @param query The normalized query
+     * @return The matching Recipes, or null if the query must be downloaded
+     */
+    ArrayList<Recipe> find(String query) {
+        ArrayList<Recipe> cached = get(query);
+        if (cached != null)
+            return cached;
+
+        for (int length = query.length() - 1; length > 0; length--) {
+            ArrayList<Recipe> prefixResult = get(query.substring(0, length));
+            if (prefixResult != null && prefixResult.isEmpty())
+                return new ArrayList<>();
+        }
+        return null;
+    }
+
+    /**
+     * @param query The text entered by the user
+     * @return The query as sent to TMDB and used as the cache key
+     */
+    static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+}
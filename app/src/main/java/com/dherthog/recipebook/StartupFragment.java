@@ -0,0 +1,36 @@
+package com.dherthog.recipebook;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.fragment.app.Fragment;
+
+/**
+ * A debug Fragment to display the timings of the last cold start.
+ */
+public class StartupFragment extends Fragment {
+
+    /**
+     * Called to have the fragment instantiate its root View and display the startup timings.
+     * @param inflater The LayoutInflater object that can be used to inflate any views in the
+     *                 fragment
+     * @param parent If non-null, this is the parent view that the fragment's UI should be attached
+     *               to. The fragment should not add the view itself, but this can be used to
+     *               generate the LayoutParams of the view. This value may be null.
+     * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous saved state as given here
+     * @return Return the View for the fragment's UI, or null
+     */
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState) {
+        // Defines the xml file for the fragment
+        View view = inflater.inflate(R.layout.fragment_startup, parent, false);
+
+        TextView tvTimings = view.findViewById(R.id.tv_startup_timings);
+        tvTimings.setText(StartupTracer.getReport());
+
+        return view;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dherthog.recipebook;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records when each milestone of a cold start is reached, relative to the start of the process.
+ * Milestones are logged to logcat under the "Startup" tag as they are reached and can be read as a
+ * report from the debug startup timing screen. Only the first time a milestone is reached counts.
+ */
+final class StartupTracer {
+
+    /**
+     * The milestones of a cold start, in the order they are expected.
+     */
+    enum Milestone {
+        APPLICATION_CREATED("Application created"),
+        ACTIVITY_CREATED("Activity created"),
+        CATEGORIES_REQUESTED("Categories requested"),
+        FIRST_FRAME("First frame drawn"),
+        CATEGORIES_LOADED("Categories loaded"),
+        CATEGORIES_RENDERED("Categories rendered"),
+        ADS_INITIALIZED("Ads initialized"),
+        IDLE_WORK_DONE("Deferred work done");
+
+        private final String label; // The name shown in the report
+
+        /**
+         * @param label The name shown in the report
+         */
+        Milestone(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final String TAG = "Startup";
+
+    // When the process started on the elapsedRealtime clock. Before API 24 the start of the
+    // process is unknown, so the first use of the tracer stands in for it.
+    private static final long processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? Process.getStartElapsedRealtime() : SystemClock.elapsedRealtime();
+
+    private static final Map<Milestone, Long> marks = new EnumMap<>(Milestone.class);
+
+    private StartupTracer() { }
+
+    /**
+     * Records that a milestone was reached now, unless it was reached before.
+     * @param milestone The milestone
+     */
+    static void mark(Milestone milestone) {
+        long elapsed = SystemClock.elapsedRealtime() - processStart;
+        synchronized (marks) {
+            if (marks.containsKey(milestone))
+                return;
+            marks.put(milestone, elapsed);
+        }
+        Log.i(TAG, milestone.label + ": " + elapsed + " ms");
+    }
+
+    /**
+     * @param milestone The milestone
+     * @return True if the milestone has been reached
+     */
+    static boolean isMarked(Milestone milestone) {
+        synchronized (marks) {
+            return marks.containsKey(milestone);
+        }
+    }
+
+    /**
+     * @return Every milestone reached so far with its time since process start, one per line
+     */
+    static String getReport() {
+        StringBuilder report = new StringBuilder();
+        synchronized (marks) {
+            for (Map.Entry<Milestone, Long> mark : marks.entrySet())
+                report.append(String.format(Locale.ROOT, "%-24s %6d ms%n", mark.getKey().label, mark.getValue()));
+        }
+        return report.toString();
+    }
+}
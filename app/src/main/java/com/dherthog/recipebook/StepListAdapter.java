@@ -0,0 +1,96 @@
+package com.dherthog.recipebook;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A RecyclerView adapter displaying the numbered steps of a Recipe's instructions, so only the
+ * visible steps are bound. Steps precomputed with the metrics of step_item are set without being
+ * measured again.
+ */
+class StepListAdapter extends RecyclerView.Adapter<StepListAdapter.StepViewHolder> {
+
+    /**
+     * A ViewHolder for step_item.
+     */
+    static class StepViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvNumber;
+        final TextView tvText;
+        final PrecomputedTextCompat.Params textParams; // The text metrics of tvText
+
+        /**
+         * @param itemView An inflated step_item
+         */
+        StepViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvNumber = itemView.findViewById(R.id.tv_step_number);
+            tvText = itemView.findViewById(R.id.tv_step_text);
+            textParams = TextViewCompat.getTextMetricsParams(tvText);
+        }
+    }
+
+    private List<CharSequence> steps = new ArrayList<>();
+
+    /**
+     * Inflates a step_item to read the text metrics its steps must be precomputed with.
+     * @param parent The ViewGroup the steps will be displayed in, which provides the theme
+     * @return The text metrics of a step
+     */
+    static PrecomputedTextCompat.Params getTextParams(@NonNull ViewGroup parent) {
+        return new StepViewHolder(inflate(parent)).textParams;
+    }
+
+    /**
+     * @param steps The steps to display, in order
+     */
+    void setSteps(List<CharSequence> steps) {
+        this.steps = steps;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public StepViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new StepViewHolder(inflate(parent));
+    }
+
+    /**
+     * Sets the number and text of the step at the given position.
+     * @param holder The ViewHolder to bind
+     * @param position The position of the step in the list
+     */
+    @Override
+    public void onBindViewHolder(@NonNull StepViewHolder holder, int position) {
+        CharSequence step = steps.get(position);
+        holder.tvNumber.setText(String.valueOf(position + 1));
+
+        // Text precomputed with other metrics, e.g. before a font scale change, is measured again
+        if (step instanceof PrecomputedTextCompat && ((PrecomputedTextCompat) step).getParams().equals(holder.textParams))
+            TextViewCompat.setPrecomputedText(holder.tvText, (PrecomputedTextCompat) step);
+        else
+            holder.tvText.setText(step.toString());
+    }
+
+    @Override
+    public int getItemCount() {
+        return steps.size();
+    }
+
+    /**
+     * @param parent The ViewGroup the step will be displayed in
+     * @return A new step_item
+     */
+    private static View inflate(@NonNull ViewGroup parent) {
+        return LayoutInflater.from(parent.getContext()).inflate(R.layout.step_item, parent, false);
+    }
+}
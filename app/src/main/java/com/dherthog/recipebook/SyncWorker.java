@@ -0,0 +1,95 @@
+package com.dherthog.recipebook;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically refreshes the cached categories and every favorite while the device is charging and
+ * connected, so navigation rarely has to wait for a refresh. Favorites are refreshed by a
+ * FavoritesRefresher with a small number of concurrent downloads.
+ */
+public class SyncWorker extends Worker {
+
+    // The unique name of the periodic sync
+    private static final String WORK_NAME = "sync";
+    private static final long SYNC_INTERVAL_HOURS = 12;
+
+    // The most favorites downloaded at the same time, kept low since nobody is waiting
+    static final int MAX_CONCURRENT_DOWNLOADS = 3;
+
+    // Stops the refresh of the favorites when the work is stopped
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    /**
+     * Schedules the periodic sync unless it is already scheduled.
+     * @param context Any Context of the application
+     */
+    static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SyncWorker.class, SYNC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * @param context The application Context
+     * @param params The parameters of the work
+     */
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Refreshes the categories, then the favorites. Retried later if nothing could be downloaded.
+     * @return The outcome of the sync
+     */
+    @NonNull
+    @Override
+    public Result doWork() {
+        RecipeRepository recipeRepository = RecipeRepository.getInstance(getApplicationContext());
+        RecipeDatabase database = RecipeDatabase.getInstance(getApplicationContext());
+
+        boolean categoriesSynced = true;
+        try {
+            recipeRepository.syncCategories();
+        } catch (IOException e) {
+            e.printStackTrace();
+            categoriesSynced = false;
+        }
+
+        try {
+            FavoritesRefresher.Progress progress = new FavoritesRefresher(recipeRepository, database, MAX_CONCURRENT_DOWNLOADS)
+                    .refresh(cancellationSignal, null);
+            boolean favoritesSynced = progress.getTotal() == 0 || progress.getFailed() < progress.getTotal();
+            return categoriesSynced || favoritesSynced ? Result.success() : Result.retry();
+        } catch (InterruptedException e) {
+            // The constraints are no longer met, so the sync is stopped
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Stops the refresh of the favorites when the constraints are no longer met.
+     */
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        cancellationSignal.cancel();
+    }
+}
@@ -0,0 +1,217 @@
+package com.dherthog.recipebook;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs background work and delivers results on the UI thread. Network I/O and CPU-bound work run
+ * on separate bounded pools so a slow download never queues up behind or blocks parsing, and vice
+ * versa. Database access runs on its own single thread. Tasks can be cancelled, bound to a
+ * Lifecycle, or submitted to a channel where only the latest task delivers its result.
+ */
+class TaskEngine {
+
+    // Downloads mostly wait on the network, so more of them run than there are cores
+    private static final int IO_THREADS = 4;
+    private static final int CPU_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static TaskEngine instance;
+
+    private final ExecutorService ioExecutor = newPool(IO_THREADS, "TaskEngine-io");
+    private final ExecutorService cpuExecutor = newPool(CPU_THREADS, "TaskEngine-cpu");
+    private final ExecutorService databaseExecutor = newPool(1, "TaskEngine-db");
+    // Work that blocks for long stretches, e.g. waiting on work it fanned out, gets a thread of its
+    // own so it never holds a thread of the bounded pools
+    private final ExecutorService longExecutor = Executors.newCachedThreadPool(newThreadFactory("TaskEngine-long"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The latest task of each channel. Only accessed on the UI thread.
+    private final Map<String, TaskHandle<?>> channels = new HashMap<>();
+
+    /**
+     * Background work producing a result.
+     * @param <T> The type of the result
+     */
+    interface Work<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Receives the result of a task on the UI thread.
+     * @param <T> The type of the result
+     */
+    interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Called instead of onResult if the work threw.
+         * @param e The exception thrown by the work
+         */
+        default void onError(Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The shared TaskEngine
+     */
+    static synchronized TaskEngine getInstance() {
+        if (instance == null)
+            instance = new TaskEngine();
+        return instance;
+    }
+
+    private TaskEngine() { }
+
+    /**
+     * Runs network work on the I/O pool.
+     * @param work The work to run
+     * @param callback Receives the result on the UI thread
+     * @param <T> The type of the result
+     * @return A handle to cancel the task
+     */
+    <T> TaskHandle<T> io(Work<T> work, Callback<T> callback) {
+        return submit(ioExecutor, new TaskHandle<>(null, callback), work);
+    }
+
+    /**
+     * Runs CPU-bound work, such as parsing or text layout, on the CPU pool.
+     * @param work The work to run
+     * @param callback Receives the result on the UI thread
+     * @param <T> The type of the result
+     * @return A handle to cancel the task
+     */
+    <T> TaskHandle<T> cpu(Work<T> work, Callback<T> callback) {
+        return submit(cpuExecutor, new TaskHandle<>(null, callback), work);
+    }
+
+    /**
+     * Runs database work on the database thread, which keeps writes ordered.
+     * @param work The work to run
+     * @param callback Receives the result on the UI thread. This value may be null.
+     * @param <T> The type of the result
+     * @return A handle to cancel the task
+     */
+    <T> TaskHandle<T> database(Work<T> work, Callback<T> callback) {
+        return submit(databaseExecutor, new TaskHandle<>(null, callback), work);
+    }
+
+    /**
+     * Runs long blocking work on a thread of its own, e.g. a refresh coordinating many downloads.
+     * @param work The work to run
+     * @param callback Receives the result on the UI thread
+     * @param <T> The type of the result
+     * @return A handle to cancel the task
+     */
+    <T> TaskHandle<T> longRunning(Work<T> work, Callback<T> callback) {
+        return submit(longExecutor, new TaskHandle<>(null, callback), work);
+    }
+
+    /**
+     * Delivers an already known result without switching threads. Must be called on the UI thread.
+     * @param result The result
+     * @param callback Receives the result immediately. This value may be null.
+     * @param <T> The type of the result
+     * @return The handle of the finished task
+     */
+    <T> TaskHandle<T> completed(T result, Callback<T> callback) {
+        TaskHandle<T> handle = new TaskHandle<>(null, callback);
+        handle.deliver(result);
+        return handle;
+    }
+
+    /**
+     * Runs network work on the I/O pool as the latest task of a channel. The previous task of the
+     * channel is cancelled, so only the most recent request delivers a result. If the previous
+     * task has the same key and is still running it is kept and returned instead, so repeated
+     * identical requests are performed once. The kept task delivers its result to the newest
+     * callback only. Must be called on the UI thread.
+     * @param channel The channel, e.g. the screen the result is displayed on
+     * @param key Identifies the request within the channel
+     * @param work The work to run
+     * @param callback Receives the result on the UI thread
+     * @param <T> The type of the result
+     * @return A handle to cancel the task
+     */
+    @SuppressWarnings("unchecked")
+    <T> TaskHandle<T> latest(String channel, String key, Work<T> work, Callback<T> callback) {
+        TaskHandle<?> previous = channels.get(channel);
+        if (previous != null && !previous.isFinished()) {
+            if (key.equals(previous.getKey())) {
+                TaskHandle<T> running = (TaskHandle<T>) previous;
+                running.setCallback(callback);
+                return running;
+            }
+            previous.cancel();
+        }
+
+        TaskHandle<T> handle = new TaskHandle<>(key, callback);
+        channels.put(channel, handle);
+        return submit(ioExecutor, handle, work);
+    }
+
+    /**
+     * Cancels the latest task of a channel, e.g. when the user navigates somewhere the result
+     * would no longer belong. Must be called on the UI thread.
+     * @param channel The channel to cancel
+     */
+    void cancel(String channel) {
+        TaskHandle<?> handle = channels.remove(channel);
+        if (handle != null)
+            handle.cancel();
+    }
+
+    /**
+     * Queues work on an executor and posts its outcome to the UI thread.
+     * @param executor The pool to run the work on
+     * @param handle The handle of the task
+     * @param work The work to run
+     * @param <T> The type of the result
+     * @return The handle of the task
+     */
+    private <T> TaskHandle<T> submit(ExecutorService executor, TaskHandle<T> handle, Work<T> work) {
+        handle.setFuture(executor.submit(() -> {
+            if (handle.isCancelled())
+                return;
+
+            try {
+                T result = work.run();
+                mainHandler.post(() -> handle.deliver(result));
+            } catch (Exception e) {
+                mainHandler.post(() -> handle.fail(e));
+            }
+        }));
+        return handle;
+    }
+
+    /**
+     * @param threads The number of threads of the pool
+     * @param name The prefix of the pool's thread names
+     * @return A fixed-size pool whose idle threads time out
+     */
+    private static ExecutorService newPool(int threads, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), newThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param name The prefix of the thread names
+     * @return A ThreadFactory numbering its threads
+     */
+    private static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(runnable, name + "-" + count.incrementAndGet());
+    }
+}
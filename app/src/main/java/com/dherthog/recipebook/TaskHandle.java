@@ -0,0 +1,139 @@
+package com.dherthog.recipebook;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Future;
+
+/**
+ * A handle to a task submitted to the TaskEngine. Cancelling it guarantees its callback is never
+ * invoked and releases the callback, so a cancelled task holds no reference to a Fragment or
+ * Activity.
+ * @param <T> The type of the task's result
+ */
+class TaskHandle<T> {
+
+    private final String key; // Identifies the task within its channel. This value may be null.
+    private volatile TaskEngine.Callback<T> callback;
+    private volatile boolean cancelled, done;
+    private Future<?> future;
+    private Lifecycle lifecycle; // The Lifecycle the task is bound to. This value may be null.
+    private LifecycleEventObserver observer;
+
+    /**
+     * @param key Identifies the task within its channel. This value may be null.
+     * @param callback Receives the result of the task on the UI thread
+     */
+    TaskHandle(String key, TaskEngine.Callback<T> callback) {
+        this.key = key;
+        this.callback = callback;
+    }
+
+    /**
+     * Cancels the task when the given LifecycleOwner is destroyed, replacing any previous binding.
+     * Must be called on the UI thread.
+     * @param owner The Activity or Fragment view the task belongs to
+     * @return This TaskHandle
+     */
+    TaskHandle<T> bindTo(LifecycleOwner owner) {
+        if (done || cancelled)
+            return this;
+
+        unbind();
+        lifecycle = owner.getLifecycle();
+        observer = new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY)
+                    cancel();
+            }
+        };
+        lifecycle.addObserver(observer);
+        return this;
+    }
+
+    /**
+     * Cancels the task. A queued task never runs; a running task is left to finish but its result
+     * is discarded. Must be called on the UI thread.
+     */
+    void cancel() {
+        cancelled = true;
+        callback = null;
+        if (future != null)
+            future.cancel(false);
+        unbind();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return True if the task has delivered its result or has been cancelled
+     */
+    boolean isFinished() {
+        return done || cancelled;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Replaces the callback of a running task, e.g. when a repeated request reuses the task.
+     * Must be called on the UI thread.
+     * @param callback Receives the result of the task on the UI thread
+     */
+    void setCallback(TaskEngine.Callback<T> callback) {
+        if (!done && !cancelled)
+            this.callback = callback;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Delivers the result of the task unless it has been cancelled. Called on the UI thread.
+     * @param result The result of the task
+     */
+    void deliver(T result) {
+        TaskEngine.Callback<T> callback = this.callback;
+        finish();
+        if (callback != null)
+            callback.onResult(result);
+    }
+
+    /**
+     * Delivers the failure of the task unless it has been cancelled. Called on the UI thread.
+     * @param e The exception thrown by the task
+     */
+    void fail(Exception e) {
+        TaskEngine.Callback<T> callback = this.callback;
+        finish();
+        if (callback != null)
+            callback.onError(e);
+    }
+
+    /**
+     * Marks the task as done and releases its references.
+     */
+    private void finish() {
+        done = true;
+        callback = null;
+        unbind();
+    }
+
+    /**
+     * Stops observing the bound Lifecycle.
+     */
+    private void unbind() {
+        if (lifecycle != null) {
+            lifecycle.removeObserver(observer);
+            lifecycle = null;
+            observer = null;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dherthog.recipebook;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Interface for Fragments to get the pool of list_item Views from MainActivity, so switching lists
+ * reuses inflated rows.
+ */
+public interface ViewPoolProvider {
+
+    /**
+     * @return The pool of list_item Views shared by all lists
+     */
+    RecyclerView.RecycledViewPool getListItemViewPool();
+}
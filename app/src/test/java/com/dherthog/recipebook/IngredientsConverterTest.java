@@ -0,0 +1,52 @@
+package com.dherthog.recipebook;
+
+import android.app.Application;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies IngredientsConverter stores ingredients in one column without losing their order or
+ * missing measures. Runs on Robolectric, which provides android.util.JsonReader and JsonWriter.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class IngredientsConverterTest {
+
+    @Test
+    public void roundTrip_keepsOrderAndNullMeasures() {
+        List<Ingredient> ingredients = Arrays.asList(new Ingredient("soy sauce", "3/4 cup"),
+                new Ingredient("water", null), new Ingredient("brown \"sugar\"", "1/4 cup"));
+
+        List<Ingredient> stored = IngredientsConverter.toIngredients(IngredientsConverter.fromIngredients(ingredients));
+
+        assertEquals(3, stored.size());
+        assertEquals("soy sauce", stored.get(0).getName());
+        assertEquals("3/4 cup", stored.get(0).getMeasure());
+        assertEquals("water", stored.get(1).getName());
+        assertNull(stored.get(1).getMeasure());
+        assertEquals("brown \"sugar\"", stored.get(2).getName());
+    }
+
+    @Test
+    public void roundTrip_keepsEmptyList() {
+        String json = IngredientsConverter.fromIngredients(new ArrayList<>());
+
+        assertEquals("[]", json);
+        assertTrue(IngredientsConverter.toIngredients(json).isEmpty());
+    }
+
+    @Test
+    public void nullColumn_meansNoStoredIngredients() {
+        assertNull(IngredientsConverter.fromIngredients(null));
+        assertNull(IngredientsConverter.toIngredients(null));
+    }
+}
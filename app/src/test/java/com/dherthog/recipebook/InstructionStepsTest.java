@@ -0,0 +1,45 @@
+package com.dherthog.recipebook;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies InstructionSteps splits TheMealDB instruction texts into steps without the numbering
+ * their authors added.
+ */
+public class InstructionStepsTest {
+
+    @Test
+    public void split_separatesLinesAndDropsBlankOnes() {
+        assertEquals(Arrays.asList("Preheat oven to 350F.", "Mix the sauce."),
+                InstructionSteps.split("Preheat oven to 350F.\r\n\r\nMix the sauce.\n"));
+    }
+
+    @Test
+    public void split_dropsNumbering() {
+        assertEquals(Arrays.asList("Preheat.", "Stir.", "Bake.", "Serve."),
+                InstructionSteps.split("1. Preheat.\n2) Stir.\nStep 3: Bake.\nSTEP 4 Serve."));
+    }
+
+    @Test
+    public void split_dropsHeadingsOnTheirOwnLine() {
+        assertEquals(Arrays.asList("Preheat.", "Stir."),
+                InstructionSteps.split("STEP 1\r\nPreheat.\r\nSTEP 2\r\nStir."));
+    }
+
+    @Test
+    public void split_keepsQuantities() {
+        assertEquals(Arrays.asList("1.5 cups flour go in.", "2 eggs, beaten."),
+                InstructionSteps.split("1.5 cups flour go in.\n2 eggs, beaten."));
+    }
+
+    @Test
+    public void split_handlesMissingText() {
+        assertEquals(Collections.emptyList(), InstructionSteps.split(null));
+        assertEquals(Collections.emptyList(), InstructionSteps.split(" \r\n "));
+    }
+}
@@ -0,0 +1,145 @@
+package com.dherthog.recipebook;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies InstructionsGate releases the Instructions or the failure exactly once, after both the
+ * ad and the load are done, whichever order they finish in.
+ */
+public class InstructionsGateTest {
+
+    private final Instructions instructions = new Instructions(52772, "Teriyaki Chicken Casserole",
+            "Chicken", "Japanese", null, "Preheat oven to 350F.", null);
+
+    private final List<Instructions> ready = new ArrayList<>();
+    private final List<LoadResult.Error> failed = new ArrayList<>();
+    private InstructionsGate gate;
+
+    @Before
+    public void setUp() {
+        gate = new InstructionsGate(new InstructionsGate.Listener() {
+            @Override
+            public void onReady(Instructions instructions) {
+                ready.add(instructions);
+            }
+
+            @Override
+            public void onFailed(LoadResult.Error error) {
+                failed.add(error);
+            }
+        });
+    }
+
+    @Test
+    public void loadBeforeAd_releasesOnceRewardedAdCloses() {
+        gate.instructionsLoaded(instructions);
+        assertEquals(InstructionsGate.State.WAITING_FOR_AD, gate.getState());
+        assertTrue(ready.isEmpty());
+
+        gate.rewardEarned();
+        assertTrue(ready.isEmpty());
+
+        gate.adDismissed();
+        assertEquals(InstructionsGate.State.READY, gate.getState());
+        assertEquals(1, ready.size());
+        assertSame(instructions, ready.get(0));
+    }
+
+    @Test
+    public void adBeforeLoad_releasesOnceLoaded() {
+        gate.rewardEarned();
+        gate.adDismissed();
+        assertEquals(InstructionsGate.State.WAITING_FOR_INSTRUCTIONS, gate.getState());
+        assertTrue(ready.isEmpty());
+
+        gate.instructionsLoaded(instructions);
+        assertEquals(InstructionsGate.State.READY, gate.getState());
+        assertEquals(1, ready.size());
+    }
+
+    @Test
+    public void skippedAd_releasesWithoutReward() {
+        gate.adSkipped();
+        gate.instructionsLoaded(instructions);
+
+        assertEquals(InstructionsGate.State.READY, gate.getState());
+        assertEquals(1, ready.size());
+    }
+
+    @Test
+    public void dismissalWithoutReward_cancels() {
+        gate.instructionsLoaded(instructions);
+        gate.adDismissed();
+
+        assertEquals(InstructionsGate.State.CANCELLED, gate.getState());
+        assertTrue(ready.isEmpty());
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void cancelWhileLoading_ignoresLaterLoad() {
+        gate.cancel();
+        gate.instructionsLoaded(instructions);
+        gate.adSkipped();
+
+        assertEquals(InstructionsGate.State.CANCELLED, gate.getState());
+        assertTrue(ready.isEmpty());
+    }
+
+    @Test
+    public void failureBeforeAd_isReportedOnceAdFinishes() {
+        gate.instructionsFailed(LoadResult.Error.OFFLINE);
+        assertTrue(gate.hasFailed());
+        assertTrue(failed.isEmpty());
+
+        gate.adSkipped();
+        assertEquals(InstructionsGate.State.FAILED, gate.getState());
+        assertEquals(1, failed.size());
+        assertEquals(LoadResult.Error.OFFLINE, failed.get(0));
+        assertTrue(ready.isEmpty());
+    }
+
+    @Test
+    public void failureAfterAd_isReportedRightAway() {
+        gate.adSkipped();
+        gate.instructionsFailed(LoadResult.Error.TIMEOUT);
+
+        assertEquals(InstructionsGate.State.FAILED, gate.getState());
+        assertTrue(gate.hasFailed());
+        assertEquals(1, failed.size());
+        assertEquals(LoadResult.Error.TIMEOUT, failed.get(0));
+    }
+
+    @Test
+    public void isPending_untilReleasedOrCancelled() {
+        assertTrue(gate.isPending());
+        gate.instructionsLoaded(instructions);
+        assertTrue(gate.isPending());
+        gate.adSkipped();
+        assertFalse(gate.isPending());
+
+        setUp();
+        gate.cancel();
+        assertFalse(gate.isPending());
+    }
+
+    @Test
+    public void releasedGate_ignoresFurtherEvents() {
+        gate.adSkipped();
+        gate.instructionsLoaded(instructions);
+        gate.instructionsLoaded(instructions);
+        gate.instructionsFailed(LoadResult.Error.SERVER);
+        gate.adSkipped();
+        gate.cancel();
+
+        assertEquals(InstructionsGate.State.READY, gate.getState());
+        assertEquals(1, ready.size());
+        assertTrue(failed.isEmpty());
+    }
+}
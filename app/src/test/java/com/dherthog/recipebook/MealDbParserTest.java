@@ -0,0 +1,87 @@
+package com.dherthog.recipebook;
+
+import android.app.Application;
+import android.util.Pair;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies MealDbParser reads the numbered ingredient and measure fields of lookup.php responses
+ * and skips categories it could not store. Runs on Robolectric, which provides
+ * android.util.JsonReader.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class MealDbParserTest {
+
+    @Test
+    public void parseCategories_skipsCategoriesWithoutTitle() throws IOException {
+        List<Pair<String, String>> categories = MealDbParser.parseCategories(body("{\"categories\":["
+                + "{\"strCategory\":\"Beef\",\"strCategoryThumb\":\"beef.png\"},"
+                + "{\"strCategory\":null,\"strCategoryThumb\":\"null.png\"},"
+                + "{\"strCategoryThumb\":\"missing.png\"},{\"strCategory\":\" \"}]}"));
+
+        assertEquals(1, categories.size());
+        assertEquals("Beef", categories.get(0).first);
+        assertEquals("beef.png", categories.get(0).second);
+    }
+
+    @Test
+    public void parseInstructions_pairsIngredientsWithTheirMeasures() throws IOException {
+        Instructions instructions = MealDbParser.parseInstructions(body("{\"meals\":[{"
+                + "\"idMeal\":\"52772\",\"strMeal\":\"Teriyaki Chicken Casserole\","
+                + "\"strMeasure2\":\"1/2 cup\",\"strIngredient1\":\"soy sauce\","
+                + "\"strIngredient2\":\" water \",\"strMeasure1\":\"3/4 cup\"}]}"));
+
+        List<Ingredient> ingredients = instructions.getIngredients();
+        assertEquals(52772, instructions.getId());
+        assertEquals(2, ingredients.size());
+        assertEquals("soy sauce", ingredients.get(0).getName());
+        assertEquals("3/4 cup", ingredients.get(0).getMeasure());
+        assertEquals("water", ingredients.get(1).getName());
+        assertEquals("1/2 cup", ingredients.get(1).getMeasure());
+    }
+
+    @Test
+    public void parseInstructions_skipsPaddingAndOutOfRangeFields() throws IOException {
+        Instructions instructions = MealDbParser.parseInstructions(body("{\"meals\":[{"
+                + "\"idMeal\":\"52772\",\"strIngredient1\":\"eggs\",\"strIngredient2\":\"\","
+                + "\"strIngredient3\":null,\"strMeasure3\":\" \",\"strIngredient0\":\"zero\","
+                + "\"strIngredient21\":\"too many\",\"strIngredientX\":\"unnumbered\","
+                + "\"strIngredient20\":\"salt\"}]}"));
+
+        List<Ingredient> ingredients = instructions.getIngredients();
+        assertEquals(2, ingredients.size());
+        assertEquals("eggs", ingredients.get(0).getName());
+        assertEquals("salt", ingredients.get(1).getName());
+    }
+
+    @Test
+    public void parseInstructions_returnsNullWithoutMeals() throws IOException {
+        assertNull(MealDbParser.parseInstructions(body("{\"meals\":null}")));
+    }
+
+    @Test(expected = MalformedResponseException.class)
+    public void parseInstructions_rejectsNonNumericIds() throws IOException {
+        MealDbParser.parseInstructions(body("{\"meals\":[{\"idMeal\":\"abc\"}]}"));
+    }
+
+    /**
+     * @param json A response body
+     * @return The body as a stream
+     */
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}